@@ -1,18 +1,36 @@
 package com.example.learnverse.activity.controller;
 
 import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.model.ActivityFacets;
+import com.example.learnverse.activity.model.ActivitySummary;
+import com.example.learnverse.activity.model.FilterPage;
 import com.example.learnverse.activity.model.PagedResponse;
+import com.example.learnverse.activity.service.ActivityNotFoundException;
 import com.example.learnverse.activity.service.ActivityService;
 import com.example.learnverse.activity.filter.ActivityFilterDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import lombok.extern.slf4j.Slf4j;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/activities")
@@ -20,7 +38,12 @@ import java.util.List;
 @Slf4j
 public class ActivityController {
 
+    // Output is flushed to the client whenever this much has been written
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     private final ActivityService activityService;
+    private final ObjectMapper objectMapper;
+    private final CatalogETags catalogETags;
 
     @Data
     public static class NaturalSearchRequest {
@@ -44,8 +67,13 @@ public class ActivityController {
         }
     }
 
+    // Pages through the user's materialized feed, best matches first
     @GetMapping("/my-feed")
-    public ResponseEntity<?> getPersonalizedActivities(Authentication auth) {
+    public ResponseEntity<?> getPersonalizedActivities(
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(defaultValue = "20") Integer size,
+            WebRequest webRequest,
+            Authentication auth) {
         String userId = auth.getName();
         boolean isUser = auth.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
@@ -56,27 +84,101 @@ public class ActivityController {
         }
 
         try {
-            List<Activity> activities = activityService.getActivitiesForUser(userId);
-            return ResponseEntity.ok(activities);
+            String etag = catalogETags.etag("my-feed", userId, page, size, activityService.getFeedSignature(userId));
+            HttpHeaders headers = catalogETags.headers("my-feed", etag);
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+            }
+
+            Page<ActivitySummary> activities = activityService.getActivitiesForUser(userId, page, size);
+
+            PagedResponse<ActivitySummary> response = new PagedResponse<>(
+                    activities.getContent(),
+                    activities.getNumber(),
+                    activities.getSize(),
+                    activities.getTotalElements(),
+                    activities.getTotalPages(),
+                    activities.isLast()
+            );
+
+            return ResponseEntity.ok().headers(headers).body(response);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
     @GetMapping("/all")
-    public ResponseEntity<?> getAllActivities(Authentication auth) {
+    public ResponseEntity<?> getAllActivities(WebRequest webRequest, Authentication auth) {
         boolean isUser = auth.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .anyMatch(role -> role.equals("ROLE_USER"));
 
         if (isUser) {
-            List<Activity> activities = activityService.getAllActivitiesForUsers();
-            return ResponseEntity.ok(activities);
+            String etag = catalogETags.etag("all");
+            HttpHeaders headers = catalogETags.headers("all", etag);
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+            }
+
+            List<ActivitySummary> activities = activityService.getAllActivitiesForUsers();
+            return ResponseEntity.ok().headers(headers).body(activities);
         } else {
             return ResponseEntity.status(403).body("Only users can fetch activities.");
         }
     }
 
+    // NDJSON export of the public catalog, one full activity per line, streamed from a Mongo cursor.
+    // Incremental clients pass the largest updatedAt they have seen as updatedSince; activities that
+    // stopped being public since then come back as {"id": ..., "removed": true}.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportActivities(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date updatedSince,
+            Authentication auth) {
+
+        boolean isUser = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(role -> role.equals("ROLE_USER"));
+
+        if (!isUser) {
+            // Streaming return type, so the error text is written by hand
+            return ResponseEntity.status(403)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(out -> out.write("Only users can export activities.".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream, EXPORT_BUFFER_SIZE);
+            activityService.exportActivities(updatedSince, activity -> {
+                boolean visible = Boolean.TRUE.equals(activity.getIsActive())
+                        && Boolean.TRUE.equals(activity.getIsPublic());
+                Object line = visible ? activity : Map.of("id", activity.getId(), "removed", true);
+                try {
+                    out.write(objectMapper.writeValueAsBytes(line));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    // Full document; list and search endpoints return ActivitySummary. Only a missing (or hidden)
+    // activity is a 404; anything else, such as Mongo being unreachable, is left to the 500 handling.
+    @GetMapping("/{activityId}")
+    public ResponseEntity<?> getActivity(@PathVariable String activityId, Authentication auth) {
+        try {
+            Activity activity = activityService.getActivityById(activityId, auth.getName());
+            return ResponseEntity.ok(activity);
+        } catch (ActivityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
     // New comprehensive filtering endpoint
     @GetMapping("/filter")
     public ResponseEntity<?> getFilteredActivities(
@@ -106,6 +208,9 @@ public class ActivityController {
             @RequestParam(defaultValue = "desc") String sortDirection,
             @RequestParam(defaultValue = "0") Integer page,
             @RequestParam(defaultValue = "20") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean approximateTotal,
+            WebRequest webRequest,
             Authentication auth) {
 
         boolean isUser = auth.getAuthorities().stream()
@@ -144,20 +249,35 @@ public class ActivityController {
                     .sortDirection(sortDirection)
                     .page(page)
                     .size(size)
+                    .cursor(cursor)
+                    .approximateTotal(approximateTotal)
                     .build();
 
-            Page<Activity> activities = activityService.getFilteredActivities(filterDto);
+            // Every parameter is in the DTO, so its toString is the request signature
+            String etag = catalogETags.etag("filter", filterDto.toString());
+            HttpHeaders headers = catalogETags.headers("filter", etag);
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+            }
+
+            // ?cursor= (empty) starts keyset pagination; the response carries the next token
+            if (filterDto.getCursor() != null) {
+                return ResponseEntity.ok().headers(headers).body(activityService.getFilteredActivitiesByCursor(filterDto));
+            }
+
+            FilterPage<ActivitySummary> activities = activityService.getFilteredActivities(filterDto);
 
-            PagedResponse<Activity> response = new PagedResponse<>(
+            PagedResponse<ActivitySummary> response = new PagedResponse<>(
                     activities.getContent(),
                     activities.getNumber(),
                     activities.getSize(),
                     activities.getTotalElements(),
                     activities.getTotalPages(),
-                    activities.isLast()
+                    activities.isLast(),
+                    activities.isTotalCapped()
             );
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().headers(headers).body(response);
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error filtering activities: " + e.getMessage());
@@ -178,18 +298,52 @@ public class ActivityController {
         }
 
         try {
-            Page<Activity> activities = activityService.getFilteredActivities(filterDto);
+            if (filterDto.getCursor() != null) {
+                return ResponseEntity.ok(activityService.getFilteredActivitiesByCursor(filterDto));
+            }
+
+            FilterPage<ActivitySummary> activities = activityService.getFilteredActivities(filterDto);
             return ResponseEntity.ok(activities);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error filtering activities: " + e.getMessage());
         }
     }
 
+    // Counts for every filter option (mode, difficulty, city, priceType, sessionDays, price and rating
+    // ranges) under the given filter, in one call; each dimension ignores its own current selection
+    @PostMapping("/filter/facets")
+    public ResponseEntity<?> getFacetCounts(
+            @RequestBody ActivityFilterDto filterDto,
+            Authentication auth) {
+
+        boolean isUser = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(role -> role.equals("ROLE_USER"));
+
+        if (!isUser) {
+            return ResponseEntity.status(403).body("Only users can filter activities.");
+        }
+
+        try {
+            ActivityFacets facets = activityService.getFacetCounts(filterDto);
+            return ResponseEntity.ok(facets);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error counting filter options: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/filter/proximity")
     public ResponseEntity<?> getActivitiesByProximity(
             @RequestParam Double userLatitude,
             @RequestParam Double userLongitude,
             @RequestParam(required = false) Double maxDistanceKm,
+            @RequestParam(required = false) List<String> subjects,
+            @RequestParam(required = false) List<String> activityTypes,
+            @RequestParam(required = false) List<String> modes,
+            @RequestParam(required = false) List<String> difficulties,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(required = false) Double minRating,
             @RequestParam(defaultValue = "0") Integer page,
             @RequestParam(defaultValue = "20") Integer size,
             Authentication auth) {
@@ -207,26 +361,25 @@ public class ActivityController {
                     .userLatitude(userLatitude)
                     .userLongitude(userLongitude)
                     .maxDistanceKm(maxDistanceKm)
+                    .subjects(subjects)
+                    .activityTypes(activityTypes)
+                    .modes(modes)
+                    .difficulties(difficulties)
+                    .minPrice(minPrice)
+                    .maxPrice(maxPrice)
+                    .minRating(minRating)
                     .page(page)
                     .size(size)
                     .build();
 
-            Page<Activity> activities = activityService.getActivitiesByProximity(filterDto);
-
-            long totalElements = 0;
-            int totalPages = 0;
+            Page<ActivitySummary> activities = activityService.getActivitiesByProximity(filterDto);
 
-            if (activities != null) {
-                totalElements = activities.getTotalElements() >= 0 ? activities.getTotalElements() : activities.getContent().size();
-                totalPages = activities.getTotalPages() > 0 ? activities.getTotalPages() : 1;
-            }
-
-            PagedResponse<Activity> response = new PagedResponse<>(
+            PagedResponse<ActivitySummary> response = new PagedResponse<>(
                     activities.getContent(),
                     activities.getNumber(),
                     activities.getSize(),
-                    totalElements,
-                    totalPages,
+                    activities.getTotalElements(),
+                    activities.getTotalPages(),
                     activities.isLast()
             );
 
@@ -237,6 +390,28 @@ public class ActivityController {
         }
     }
 
+    // Same as GET /filter/proximity with the full ActivityFilterDto filter set
+    @PostMapping("/filter/proximity")
+    public ResponseEntity<?> getActivitiesByProximityPost(
+            @RequestBody ActivityFilterDto filterDto,
+            Authentication auth) {
+
+        boolean isUser = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(role -> role.equals("ROLE_USER"));
+
+        if (!isUser) {
+            return ResponseEntity.status(403).body("Only users can filter activities.");
+        }
+
+        try {
+            FilterPage<ActivitySummary> activities = activityService.getActivitiesByProximity(filterDto);
+            return ResponseEntity.ok(activities);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error filtering activities by proximity: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/search/natural")
     public ResponseEntity<?> searchActivitiesNaturally(
             @RequestBody NaturalSearchRequest request,
@@ -254,7 +429,7 @@ public class ActivityController {
 
         try {
             String userId = auth.getName();
-            Page<Activity> activities = activityService.getRecommendedActivities(
+            Page<ActivitySummary> activities = activityService.getRecommendedActivities(
                     request.getText(),
                     userId,
                     request.getUserLatitude(),
@@ -266,7 +441,7 @@ public class ActivityController {
             long totalElements = activities.getTotalElements();
             int totalPages = activities.getTotalPages();
 
-            PagedResponse<Activity> response = new PagedResponse<>(
+            PagedResponse<ActivitySummary> response = new PagedResponse<>(
                     activities.getContent(),
                     activities.getNumber(),
                     activities.getSize(),
@@ -0,0 +1,38 @@
+package com.example.learnverse.activity.controller;
+
+import com.example.learnverse.activity.service.CatalogVersion;
+import com.example.learnverse.config.HttpCacheProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Conditional GET for catalog reads. A response is fully determined by the catalog version and the
+// request signature (parameters, user state), so the ETag is derived from those two alone and can be
+// checked against If-None-Match before any query runs or any body is serialized.
+@Component
+@RequiredArgsConstructor
+public class CatalogETags {
+
+    private final CatalogVersion catalogVersion;
+    private final HttpCacheProperties properties;
+
+    // Weak: equal tags mean equivalent content, not byte-identical serialization
+    public String etag(String endpoint, Object... signature) {
+        String digest = DigestUtils.md5DigestAsHex(
+                (endpoint + Arrays.deepToString(signature)).getBytes(StandardCharsets.UTF_8));
+        return "W/\"" + catalogVersion.tag() + "-" + digest.substring(0, 16) + "\"";
+    }
+
+    // ETag plus the endpoint's configured Cache-Control, for both 200 and 304 responses
+    public HttpHeaders headers(String endpoint, String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setCacheControl(properties.getCacheControl()
+                .getOrDefault(endpoint, properties.getDefaultCacheControl()));
+        return headers;
+    }
+}
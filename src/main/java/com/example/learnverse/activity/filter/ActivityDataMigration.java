@@ -0,0 +1,117 @@
+package com.example.learnverse.activity.filter;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+// One-time rewrite of activities saved before filter fields were normalized on write.
+// The filter endpoint matches these fields by plain equality, so legacy mixed-case
+// values would otherwise silently stop matching. Runs before the other startup runners, so the
+// search index and replica are loaded from normalized documents.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class ActivityDataMigration implements CommandLineRunner {
+
+    private static final String MIGRATION_ID = "activity-normalize-filter-fields-v1";
+    private static final int BATCH_SIZE = 500;
+
+    // Same fields normalizeActivityData lowercases and trims on write
+    private static final List<String> NORMALIZED_FIELDS = List.of(
+            "subject", "mode", "activityType", "difficulty", "tags",
+            "location.city", "location.state", "pricing.priceType", "schedule.sessionDays"
+    );
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(String... args) throws Exception {
+        migrate();
+    }
+
+    private void migrate() {
+        MongoCollection<Document> migrations = mongoTemplate.getCollection("migrations");
+
+        try {
+            if (migrations.find(Filters.eq("_id", MIGRATION_ID)).first() != null) {
+                return;
+            }
+
+            MongoCollection<Document> collection = mongoTemplate.getCollection("activities");
+            List<WriteModel<Document>> updates = new ArrayList<>();
+            Date migratedAt = new Date();
+            int scanned = 0;
+            int updated = 0;
+
+            for (Document activity : collection.find().projection(Projections.include(NORMALIZED_FIELDS))) {
+                scanned++;
+
+                Document changes = new Document();
+                for (String field : NORMALIZED_FIELDS) {
+                    Object value = activity.getEmbedded(Arrays.asList(field.split("\\.")), Object.class);
+                    Object normalized = normalize(value);
+                    if (!Objects.equals(value, normalized)) {
+                        changes.append(field, normalized);
+                    }
+                }
+
+                if (!changes.isEmpty()) {
+                    // Lets segment replay and incremental exports pick up the rewritten documents
+                    changes.append("updatedAt", migratedAt);
+                    updates.add(new UpdateOneModel<>(Filters.eq("_id", activity.get("_id")), new Document("$set", changes)));
+                }
+                if (updates.size() >= BATCH_SIZE) {
+                    updated += collection.bulkWrite(updates, new BulkWriteOptions().ordered(false)).getModifiedCount();
+                    updates.clear();
+                }
+            }
+
+            if (!updates.isEmpty()) {
+                updated += collection.bulkWrite(updates, new BulkWriteOptions().ordered(false)).getModifiedCount();
+            }
+
+            migrations.insertOne(new Document("_id", MIGRATION_ID)
+                    .append("appliedAt", migratedAt)
+                    .append("scanned", scanned)
+                    .append("updated", updated));
+
+            log.info("Normalized filter fields on {} of {} activities", updated, scanned);
+
+        } catch (Exception e) {
+            // Not recorded as applied, so it is retried on the next start
+            log.error("Error normalizing activity filter fields: ", e);
+        }
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof String text) {
+            return text.toLowerCase().trim();
+        }
+        if (value instanceof List<?> values) {
+            return values.stream()
+                    .filter(element -> element instanceof String text && !text.trim().isEmpty())
+                    .map(element -> ((String) element).toLowerCase().trim())
+                    .collect(Collectors.toList());
+        }
+        return value;
+    }
+}
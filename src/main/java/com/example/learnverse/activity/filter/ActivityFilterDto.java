@@ -5,7 +5,7 @@ import lombok.*;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ActivityFilterDto {
@@ -54,6 +54,10 @@ public class ActivityFilterDto {
     // Pagination
     private Integer page;
     private Integer size;
+    // Keyset mode when set: empty for the first page, then the previous page's nextCursor
+    private String cursor;
+    // Stop counting at search.filter.count-cap; the total is then a lower bound ("10000+")
+    private Boolean approximateTotal;
 
     // Search query
     private String searchQuery;
@@ -10,6 +10,8 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+
 @Component
 @Slf4j
 public class ActivityIndexConfig implements CommandLineRunner {
@@ -177,6 +179,29 @@ public class ActivityIndexConfig implements CommandLineRunner {
                     new IndexOptions().name("idx_location_coordinates_2dsphere")
             );
 
+            // 17. Change replay for the search index segment and the export, which both scan
+            // (updatedAt, _id); replaces the earlier updatedAt-only index
+            boolean legacyUpdatedAtIndex = collection.listIndexes()
+                    .map(index -> index.getString("name"))
+                    .into(new ArrayList<>())
+                    .contains("idx_updated_at");
+            if (legacyUpdatedAtIndex) {
+                collection.dropIndex("idx_updated_at");
+            }
+            collection.createIndex(
+                    Indexes.ascending("updatedAt", "_id"),
+                    new IndexOptions().name("idx_updated_at_id")
+            );
+
+            // 18. Keyset pagination: sort key plus _id tie-breaker, scanned backwards for descending sorts
+            for (String sortField : new String[]{"pricing.price", "reviews.averageRating",
+                    "enrollmentInfo.enrolledCount", "createdAt", "duration.totalDuration"}) {
+                collection.createIndex(
+                        Indexes.ascending("isActive", "isPublic", sortField, "_id"),
+                        new IndexOptions().name("idx_seek_" + sortField.replace('.', '_'))
+                );
+            }
+
             log.info("Successfully created MongoDB indexes for Activity collection");
 
         } catch (Exception e) {
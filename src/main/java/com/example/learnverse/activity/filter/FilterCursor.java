@@ -0,0 +1,63 @@
+package com.example.learnverse.activity.filter;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Continuation token for keyset pagination on /filter: sort key and _id of the last activity
+// of the previous page. The sort is part of the token so it cannot be replayed against another order.
+public record FilterCursor(String sortField, Sort.Direction direction, Object sortValue, Object id) {
+
+    public String encode() {
+        Document document = new Document("f", sortField)
+                .append("d", direction.name())
+                .append("v", sortValue)
+                .append("i", id);
+
+        // Extended JSON keeps dates and ObjectIds typed, so range predicates compare like for like
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(document.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static FilterCursor decode(String token, String sortField, Sort.Direction direction) {
+        Document document;
+        try {
+            document = Document.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        if (!sortField.equals(document.getString("f")) || !direction.name().equals(document.getString("d"))
+                || document.get("i") == null) {
+            throw new IllegalArgumentException("Cursor does not belong to the requested sort order");
+        }
+
+        return new FilterCursor(sortField, direction, document.get("v"), document.get("i"));
+    }
+
+    // Everything strictly after (sortValue, id) in (sort, _id) order. Mongo sorts null/missing
+    // values first, so they come before every key ascending and after every key descending.
+    public Criteria toCriteria() {
+        boolean ascending = direction.isAscending();
+
+        Criteria sameKey = Criteria.where(sortField).is(sortValue);
+        Criteria sameKeyAfter = ascending ? sameKey.and("_id").gt(id) : sameKey.and("_id").lt(id);
+
+        if (sortValue == null) {
+            return ascending
+                    ? new Criteria().orOperator(sameKeyAfter, Criteria.where(sortField).ne(null))
+                    : sameKeyAfter;
+        }
+
+        Criteria beyondKey = ascending
+                ? Criteria.where(sortField).gt(sortValue)
+                : Criteria.where(sortField).lt(sortValue);
+
+        return ascending
+                ? new Criteria().orOperator(beyondKey, sameKeyAfter)
+                : new Criteria().orOperator(beyondKey, sameKeyAfter, Criteria.where(sortField).is(null));
+    }
+}
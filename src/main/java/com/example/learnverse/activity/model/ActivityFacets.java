@@ -0,0 +1,26 @@
+package com.example.learnverse.activity.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+// Option counts for the filter UI. Each dimension is counted with every filter applied except
+// its own, so a count is the number of results the user gets after also selecting that option.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityFacets {
+
+    // Matches for the full filter, as /filter would report it
+    private long total;
+
+    // Dimension name (mode, difficulty, city, priceType, sessionDays, price, rating) -> options
+    private Map<String, List<FacetCount>> facets;
+
+    // Price options are ranges ("500-1000", "10000+"); rating options are minimums ("4" = 4 and up)
+    public record FacetCount(String value, long count) {
+    }
+}
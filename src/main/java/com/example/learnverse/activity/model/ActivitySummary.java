@@ -0,0 +1,86 @@
+package com.example.learnverse.activity.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+import java.util.Date;
+import java.util.List;
+
+// Read model for result cards on list and search endpoints. Loaded with a field projection, so
+// video content, review texts, instructor details and contact info are never decoded or sent;
+// the full document comes from GET /api/activities/{id}.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ActivitySummary {
+
+    // Mongo projection matching the fields below; nested objects are only partially loaded
+    public static final String[] FIELDS = {
+            "tutorId", "tutorName", "title", "subject", "classType", "activityType", "mode", "difficulty",
+            "location.address", "location.city", "location.state", "location.coordinates",
+            "suitableAgeGroup", "pricing", "duration",
+            "reviews.averageRating", "reviews.totalReviews",
+            "enrollmentInfo.enrolledCount", "enrollmentInfo.maxCapacity", "enrollmentInfo.enrollmentStatus",
+            "schedule.sessionDays", "schedule.sessionTime", "schedule.selfPaced", "schedule.flexibleScheduling",
+            "demoAvailable", "tags", "featured", "createdAt"
+    };
+
+    @Id
+    private String id;
+
+    private String tutorId;
+    private String tutorName;
+
+    private String title;
+    private String subject;
+    private String classType;
+    private String activityType;
+    private String mode;
+    private String difficulty;
+
+    private Activity.Location location;
+    private Activity.SuitableAgeGroup suitableAgeGroup;
+    private Activity.Pricing pricing;
+    private Activity.DurationInfo duration;
+    private Activity.Reviews reviews;
+    private Activity.EnrollmentInfo enrollmentInfo;
+    private Activity.Schedule schedule;
+
+    private Boolean demoAvailable;
+    private List<String> tags;
+    private Boolean featured;
+    private Date createdAt;
+
+    // Only set by proximity search: distance from the user in km
+    private Double distanceKm;
+
+    // For results that were loaded as full (or wider) documents
+    public static ActivitySummary from(Activity activity) {
+        return ActivitySummary.builder()
+                .id(activity.getId())
+                .tutorId(activity.getTutorId())
+                .tutorName(activity.getTutorName())
+                .title(activity.getTitle())
+                .subject(activity.getSubject())
+                .classType(activity.getClassType())
+                .activityType(activity.getActivityType())
+                .mode(activity.getMode())
+                .difficulty(activity.getDifficulty())
+                .location(activity.getLocation())
+                .suitableAgeGroup(activity.getSuitableAgeGroup())
+                .pricing(activity.getPricing())
+                .duration(activity.getDuration())
+                .reviews(activity.getReviews())
+                .enrollmentInfo(activity.getEnrollmentInfo())
+                .schedule(activity.getSchedule())
+                .demoAvailable(activity.getDemoAvailable())
+                .tags(activity.getTags())
+                .featured(activity.getFeatured())
+                .createdAt(activity.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.learnverse.activity.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.util.List;
+
+// Keyset-paginated slice; pass nextCursor back as `cursor` to continue. No total is computed.
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int pageSize;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,21 @@
+package com.example.learnverse.activity.model;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+// Page whose total may be a lower bound when /filter counts in approximate mode
+public class FilterPage<T> extends PageImpl<T> {
+
+    private final boolean totalCapped;
+
+    public FilterPage(List<T> content, Pageable pageable, long total, boolean totalCapped) {
+        super(content, pageable, total);
+        this.totalCapped = totalCapped;
+    }
+
+    public boolean isTotalCapped() {
+        return totalCapped;
+    }
+}
@@ -13,6 +13,12 @@ public class PagedResponse<T> {
     private long totalElements;
     private int totalPages;
     private boolean last;
+    // totalElements is a lower bound (approximate total mode on /filter)
+    private boolean totalCapped;
+
+    public PagedResponse(List<T> content, int pageNumber, int pageSize, long totalElements, int totalPages, boolean last) {
+        this(content, pageNumber, pageSize, totalElements, totalPages, last, false);
+    }
 }
 
 
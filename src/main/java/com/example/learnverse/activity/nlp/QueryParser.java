@@ -1,19 +1,23 @@
 package com.example.learnverse.activity.nlp;
 
 import lombok.Data;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
+@RequiredArgsConstructor
 public class QueryParser {
 
 //    - Natural language parsing using regex patterns
 //    - Extracts structured data: distance, price, mode, time preferences
-//    - Cleans query text for TF-IDF processing
+//    - Cleans query text for TF-IDF processing with the same TextAnalyzer the index uses
 //    - Handles various input formats gracefully
 
 
@@ -23,6 +27,12 @@ public class QueryParser {
     private static final Pattern MODE_PATTERN = Pattern.compile("\\b(online|offline|hybrid)\\b", Pattern.CASE_INSENSITIVE);
     private static final Pattern DAYS_PATTERN = Pattern.compile("\\b(weekend|weekday|monday|tuesday|wednesday|thursday|friday|saturday|sunday|evening|morning)s?\\b", Pattern.CASE_INSENSITIVE);
 
+    // Filler words dropped from the query text (shorter ones never survive the analyzer's min length)
+    private static final Set<String> FILLER_WORDS = Set.of("find", "classes", "that", "are", "located", "and", "made",
+            "for", "someone", "who", "has", "suggest", "something", "will", "make", "within", "range");
+
+    private final TextAnalyzer textAnalyzer;
+
     @Data
     public static class ParsedQuery {
         private String queryText;
@@ -64,14 +74,14 @@ public class QueryParser {
         }
 
         // Extract query text (remove structured parts)
-        String cleanQuery = naturalQuery
-                .replaceAll(DISTANCE_PATTERN.pattern(), "")
-                .replaceAll(PRICE_PATTERN.pattern(), "")
-                .replaceAll(MODE_PATTERN.pattern(), "")
-                .replaceAll(DAYS_PATTERN.pattern(), "")
-                .replaceAll("\\b(?:find|me|classes|that|are|located|and|made|for|someone|who|has|to|suggest|something|will|make|within|range)\\b", "")
-                .replaceAll("\\s+", " ")
-                .trim();
+        String remaining = DISTANCE_PATTERN.matcher(naturalQuery).replaceAll("");
+        remaining = PRICE_PATTERN.matcher(remaining).replaceAll("");
+        remaining = MODE_PATTERN.matcher(remaining).replaceAll("");
+        remaining = DAYS_PATTERN.matcher(remaining).replaceAll("");
+
+        String cleanQuery = textAnalyzer.tokenize(remaining).stream()
+                .filter(token -> !FILLER_WORDS.contains(token))
+                .collect(Collectors.joining(" "));
 
         parsed.setQueryText(cleanQuery);
 
@@ -0,0 +1,136 @@
+package com.example.learnverse.activity.nlp;
+
+import java.util.Arrays;
+
+// Vocabulary mapping terms to dense int ids, looked up straight from a char range so the
+// analyzer's token buffer never has to become a String. Open addressing over a shared char pool.
+// Not thread-safe for writers: index snapshots publish a dictionary only once it stops changing,
+// and copy() it before adding terms for the next snapshot.
+public final class TermDictionary {
+
+    private static final int NO_TERM = -1;
+
+    private char[] pool = new char[8192];
+    private int poolSize = 0;
+
+    private int[] termOffsets = new int[1024];
+    private int[] termLengths = new int[1024];
+    private int size = 0;
+
+    private int[] slots = newSlots(2048);
+
+    public TermDictionary copy() {
+        TermDictionary copy = new TermDictionary();
+        copy.pool = Arrays.copyOf(pool, pool.length);
+        copy.poolSize = poolSize;
+        copy.termOffsets = Arrays.copyOf(termOffsets, termOffsets.length);
+        copy.termLengths = Arrays.copyOf(termLengths, termLengths.length);
+        copy.size = size;
+        copy.slots = Arrays.copyOf(slots, slots.length);
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Id of the term, or -1 when it is not in the vocabulary
+    public int lookup(char[] buffer, int length) {
+        int mask = slots.length - 1;
+        int slot = hash(buffer, length) & mask;
+
+        while (true) {
+            int termId = slots[slot];
+            if (termId == NO_TERM || matches(termId, buffer, length)) {
+                return termId;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Id of the term, adding it to the vocabulary first if needed
+    public int add(char[] buffer, int length) {
+        int mask = slots.length - 1;
+        int slot = hash(buffer, length) & mask;
+
+        while (slots[slot] != NO_TERM) {
+            if (matches(slots[slot], buffer, length)) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int termId = append(buffer, length);
+        slots[slot] = termId;
+
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return termId;
+    }
+
+    public String term(int termId) {
+        return new String(pool, termOffsets[termId], termLengths[termId]);
+    }
+
+    private int append(char[] buffer, int length) {
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + length));
+        }
+        if (size == termOffsets.length) {
+            termOffsets = Arrays.copyOf(termOffsets, size * 2);
+            termLengths = Arrays.copyOf(termLengths, size * 2);
+        }
+
+        System.arraycopy(buffer, 0, pool, poolSize, length);
+        termOffsets[size] = poolSize;
+        termLengths[size] = length;
+        poolSize += length;
+        return size++;
+    }
+
+    private boolean matches(int termId, char[] buffer, int length) {
+        if (termLengths[termId] != length) {
+            return false;
+        }
+        int offset = termOffsets[termId];
+        for (int i = 0; i < length; i++) {
+            if (pool[offset + i] != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        int[] rehashed = newSlots(capacity);
+        int mask = capacity - 1;
+
+        for (int termId = 0; termId < size; termId++) {
+            int slot = hash(pool, termOffsets[termId], termLengths[termId]) & mask;
+            while (rehashed[slot] != NO_TERM) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = termId;
+        }
+        slots = rehashed;
+    }
+
+    private static int[] newSlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, NO_TERM);
+        return slots;
+    }
+
+    private static int hash(char[] buffer, int length) {
+        return hash(buffer, 0, length);
+    }
+
+    private static int hash(char[] chars, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.learnverse.activity.nlp;
+
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class TextAnalyzer {
+
+//    - Single pass over the input chars, no regex and no intermediate strings
+//    - Tokenizer: letters and digits form tokens, everything else separates them
+//    - Lowercase + ASCII folding filter (café -> cafe, straße -> strasse)
+//    - Min length filter: tokens shorter than MIN_TOKEN_LENGTH are dropped
+//    - Shared by indexing, query vectorization and QueryParser
+
+
+    public static final int MIN_TOKEN_LENGTH = 3;
+
+    // Folded (lowercase ASCII) expansion for every char below FOLD_TABLE_SIZE; null = separator
+    private static final int FOLD_TABLE_SIZE = 0x0250;
+    private static final char[][] FOLD_TABLE = buildFoldTable();
+
+    @FunctionalInterface
+    public interface TokenConsumer {
+        // buffer is reused between tokens; only the first `length` chars belong to this token
+        void accept(char[] buffer, int length);
+    }
+
+    public void analyze(CharSequence text, TokenConsumer consumer) {
+        if (text == null) {
+            return;
+        }
+
+        char[] buffer = new char[32];
+        int length = 0;
+
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char[] folded = i < n ? fold(text.charAt(i)) : null;
+
+            if (folded == null) {
+                if (length >= MIN_TOKEN_LENGTH) {
+                    consumer.accept(buffer, length);
+                }
+                length = 0;
+                continue;
+            }
+
+            if (length + folded.length > buffer.length) {
+                char[] grown = new char[buffer.length * 2];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+            for (char c : folded) {
+                buffer[length++] = c;
+            }
+        }
+    }
+
+    // Convenience for callers that need the tokens themselves, e.g. QueryParser
+    public List<String> tokenize(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        analyze(text, (buffer, length) -> tokens.add(new String(buffer, 0, length)));
+        return tokens;
+    }
+
+    private static char[] fold(char c) {
+        return c < FOLD_TABLE_SIZE ? FOLD_TABLE[c] : null;
+    }
+
+    private static char[][] buildFoldTable() {
+        char[][] table = new char[FOLD_TABLE_SIZE][];
+
+        for (char c = 'a'; c <= 'z'; c++) {
+            table[c] = new char[]{c};
+            table[Character.toUpperCase(c)] = table[c];
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            table[c] = new char[]{c};
+        }
+
+        // Latin-1 Supplement and Latin Extended-A/B: strip diacritics once, at class load
+        for (char c = 0x00C0; c < FOLD_TABLE_SIZE; c++) {
+            if (!Character.isLetter(c)) {
+                continue;
+            }
+            String base = Normalizer.normalize(String.valueOf(Character.toLowerCase(c)), Normalizer.Form.NFD);
+            char first = base.charAt(0);
+            if (first >= 'a' && first <= 'z') {
+                table[c] = new char[]{first};
+            }
+        }
+
+        // Letters without a canonical decomposition
+        table['\u00DF'] = new char[]{'s', 's'};
+        table['\u00E6'] = new char[]{'a', 'e'};
+        table['\u00C6'] = table['\u00E6'];
+        table['\u00F8'] = new char[]{'o'};
+        table['\u00D8'] = table['\u00F8'];
+        table['\u0153'] = new char[]{'o', 'e'};
+        table['\u0152'] = table['\u0153'];
+        table['\u0111'] = new char[]{'d'};
+        table['\u0110'] = table['\u0111'];
+        table['\u0142'] = new char[]{'l'};
+        table['\u0141'] = table['\u0142'];
+        table['\u0131'] = new char[]{'i'};
+
+        return table;
+    }
+}
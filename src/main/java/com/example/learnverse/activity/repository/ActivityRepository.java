@@ -7,6 +7,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
 import java.util.List;
 
 @Repository
@@ -25,6 +26,9 @@ public interface ActivityRepository extends MongoRepository<Activity, String> {
 
     List<Activity> findByIsActiveAndIsPublic(Boolean isActive, Boolean isPublic);
 
+    // Includes inactive/private activities so the search index can drop them
+    List<Activity> findByUpdatedAtAfter(Date since);
+
     // Text search on title, description, and subject
     @Query("{ $and: [ " +
             "  { $text: { $search: ?0 } }, " +
@@ -0,0 +1,10 @@
+package com.example.learnverse.activity.service;
+
+// No such activity, or one the requester may not see. Hidden activities use the same exception,
+// so the detail endpoint does not reveal that they exist.
+public class ActivityNotFoundException extends RuntimeException {
+
+    public ActivityNotFoundException(String activityId) {
+        super("Activity not found: " + activityId);
+    }
+}
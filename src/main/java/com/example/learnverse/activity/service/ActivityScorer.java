@@ -0,0 +1,54 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.model.Activity;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+// Relevance engine behind natural search. Implementations own a long-lived index over the
+// public catalog; the active one is picked with search.scorer (tfidf | bm25f).
+// Reads run lock-free against an immutable index snapshot; writes are serialized and publish a new one.
+public interface ActivityScorer {
+
+    void rebuildIndex(List<Activity> activities);
+
+    // Adds or replaces a single activity; inactive or private activities are dropped from the index
+    void indexActivity(Activity activity);
+
+    // Same as indexActivity for each element, published as a single new snapshot
+    void indexActivities(Collection<Activity> activities);
+
+    void removeActivity(String activityId);
+
+    // Applies a batch of upserts and deletions as a single new snapshot
+    void updateIndex(Collection<Activity> changed, Collection<String> removedIds);
+
+    int getIndexedDocumentCount();
+
+    // Persists the current snapshot so a restart can skip reading and analyzing the whole catalog.
+    // Returns false when the scorer has no on-disk format.
+    default boolean writeSegment(Path path, Instant checkpoint) throws IOException {
+        return false;
+    }
+
+    // Replaces the index with a previously written segment and returns its checkpoint; activities
+    // changed after it still need to be replayed. Null when there is no usable segment.
+    default Instant loadSegment(Path path) throws IOException {
+        return null;
+    }
+
+    // Analyzes the query once so each candidate costs only an index lookup and a score.
+    // The returned query keeps scoring against the snapshot it was prepared on.
+    ScoringQuery prepareQuery(String queryText);
+
+    interface ScoringQuery {
+        boolean isEmpty();
+
+        // Indexed candidates are scored from their stored terms. Ones the index has not caught up
+        // with yet are analyzed against the same snapshot, without being added to it.
+        float score(Activity activity);
+    }
+}
@@ -1,34 +1,55 @@
 package com.example.learnverse.activity.service;
 
 import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.model.ActivityFacets;
+import com.example.learnverse.activity.model.ActivitySummary;
 import com.example.learnverse.activity.nlp.QueryParser;
 import com.example.learnverse.activity.repository.ActivityRepository;
 import com.example.learnverse.activity.filter.ActivityFilterDto;
-import com.example.learnverse.auth.service.UserService;
-import com.example.learnverse.auth.user.AppUser;
+import com.example.learnverse.activity.filter.FilterCursor;
+import com.example.learnverse.activity.model.CursorPage;
+import com.example.learnverse.activity.model.FilterPage;
+import com.example.learnverse.config.CacheConfig;
+import com.example.learnverse.config.VersionedCacheKey;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.CriteriaDefinition;
 import org.springframework.data.mongodb.core.query.NearQuery;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.util.StringUtils;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.aggregation.AggregationResults;
-import org.springframework.data.geo.Distance;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.geo.Circle;
 import org.springframework.data.geo.Metrics;
 import org.springframework.data.geo.Point;
 
@@ -40,19 +61,98 @@ public class ActivityService {
     @Autowired
     private ActivityRepository activityRepository;
 
-    @Autowired
-    private UserService userService;
-
     @Autowired
     private MongoTemplate mongoTemplate;
 
     @Autowired
-    private TfIdfService tfIdfService;
+    private ActivityScorer activityScorer;
 
     @Autowired
     private QueryParser queryParser;
 
-    public Page<Activity> getRecommendedActivities(String naturalQuery, String userId,
+    @Autowired
+    private SimilarityRanker similarityRanker;
+
+    // Optional early-exit score for natural search ranking; unset scans every candidate
+    @Value("${search.ranking.score-threshold:#{null}}")
+    private Double scoreThreshold;
+
+    private static final String ACTIVITIES_COLLECTION = "activities";
+
+    // Same mean radius as calculateDistance, so $centerSphere and the Java haversine agree
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    // Text fields ActivityScorer implementations analyze
+    private static final String[] INDEXED_TEXT_FIELDS = {
+            "title", "subject", "description", "tags", "activityType", "classType"
+    };
+
+    // Not analyzed, but the scorers only index activities that are active and public
+    // (SnapshotActivityScorer.isSearchable), so a candidate read for scoring needs both flags
+    private static final String[] VISIBILITY_FIELDS = {"isActive", "isPublic"};
+
+    // Sort keys with a (isActive, isPublic, key, _id) index, which cursor pagination seeks on
+    private static final Set<String> SEEKABLE_SORT_FIELDS = Set.of(
+            "pricing.price", "reviews.averageRating", "enrollmentInfo.enrolledCount",
+            "createdAt", "duration.totalDuration");
+
+    // Facet dimensions reported by getFacetCounts, each tied to the filter it counts options for
+    private static final String FACET_MODE = "mode";
+    private static final String FACET_DIFFICULTY = "difficulty";
+    private static final String FACET_CITY = "city";
+    private static final String FACET_PRICE_TYPE = "priceType";
+    private static final String FACET_SESSION_DAYS = "sessionDays";
+    private static final String FACET_PRICE = "price";
+    private static final String FACET_RATING = "rating";
+
+    // Lower bounds of the minRating options; the last $bucket boundary only has to exceed 5
+    private static final double[] RATING_FACET_BOUNDARIES = {1, 2, 3, 4, 6};
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private CatalogReplica catalogReplica;
+
+    @Autowired
+    private PersonalizedFeedService personalizedFeedService;
+
+    // Documents per cursor batch for /export; bounds how much of the catalog is in memory at once
+    @Value("${activities.export.batch-size:500}")
+    private int exportBatchSize;
+
+    // Approximate-total mode on /filter stops counting past this many matches
+    @Value("${search.filter.count-cap:10000}")
+    private int filterCountCap;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // 0..1: how much distance lowers natural search scores within the requested radius; 0 ranks by relevance only
+    @Value("${search.ranking.distance-weight:0}")
+    private double distanceWeight;
+
+    // Upper bound on natural search candidates fetched from Mongo and re-ranked in memory
+    @Value("${search.candidates.limit:500}")
+    private int candidateLimit;
+
+    // How many ranked ids a natural search result cache entry keeps; deeper pages are ranked live
+    @Value("${search.result-cache.max-results:100}")
+    private int maxCachedResults;
+
+    // Size of the lat/lon grid cells user locations are snapped to (0.01 degrees is about 1 km)
+    @Value("${search.result-cache.geo-cell-degrees:0.01}")
+    private double geoCellDegrees;
+
+    // Lower bounds of the price facet ranges; the last one is open-ended ("10000+")
+    @Value("${search.facets.price-boundaries:0,500,1000,2500,5000,10000}")
+    private int[] priceFacetBoundaries;
+
+    // Most common cities listed in the city facet
+    @Value("${search.facets.city-limit:20}")
+    private int cityFacetLimit;
+
+    public Page<ActivitySummary> getRecommendedActivities(String naturalQuery, String userId,
                                                    Double userLatitude, Double userLongitude,
                                                    Integer page, Integer size) {
         log.info("Getting recommendations for natural query: {}", naturalQuery);
@@ -60,8 +160,73 @@ public class ActivityService {
         // Parse the natural language query
         QueryParser.ParsedQuery parsedQuery = queryParser.parseQuery(naturalQuery);
 
+        int pageNum = page != null ? page : 0;
+        int pageSize = size != null ? size : 20;
+        int offset = pageNum * pageSize;
+        Pageable pageable = PageRequest.of(pageNum, pageSize);
+
+        // Location only matters with a distance limit; snapping it to a cell lets nearby users share results
+        boolean useLocation = parsedQuery.getDistanceKm() != null && userLatitude != null && userLongitude != null;
+        Double latitude = useLocation ? snapToGeoCell(userLatitude) : null;
+        Double longitude = useLocation ? snapToGeoCell(userLongitude) : null;
+
+        // Version is read before fetching, so results computed during a concurrent write are never served after it
+        Cache resultCache = cacheManager.getCache(CacheConfig.SEARCH_RESULTS);
+        VersionedCacheKey cacheKey = new VersionedCacheKey("natural", catalogVersion.current(),
+                NaturalSearchKey.of(parsedQuery, latitude, longitude));
+
+        RankedResults cached = resultCache != null ? resultCache.get(cacheKey, RankedResults.class) : null;
+        if (cached != null && cached.covers(offset + pageSize)) {
+            log.debug("Natural search served from cache ({} ranked ids)", cached.activityIds().size());
+            List<ActivitySummary> pageResults = loadSummariesInOrder(cached.page(offset, pageSize));
+            return PageableExecutionUtils.getPage(pageResults, pageable, cached::totalCount);
+        }
+
+        List<Activity> candidates = findNaturalSearchCandidates(parsedQuery, latitude, longitude);
+
+        // Store the total count in a final variable
+        final long totalCount = candidates.size();
+
+        // Rank deep enough to serve the next pages from the cache as well. Capped at the candidate
+        // count: a bound at or above it keeps every candidate and no score threshold can end the scan.
+        int depth = Math.min(Math.max(offset + pageSize, maxCachedResults), candidates.size());
+        float[] distanceFactors = latitude != null && distanceWeight > 0
+                ? distanceFactors(candidates, latitude, longitude, parsedQuery.getDistanceKm())
+                : null;
+        List<Activity> ranked = rankActivitiesBySimilarity(candidates, parsedQuery.getQueryText(), 0, depth,
+                distanceFactors);
+
+        if (resultCache != null) {
+            List<String> rankedIds = ranked.stream().map(Activity::getId).toList();
+            resultCache.put(cacheKey, new RankedResults(rankedIds, totalCount));
+        }
+
+        List<ActivitySummary> paginatedResults = offset < ranked.size()
+                ? ranked.subList(offset, Math.min(offset + pageSize, ranked.size())).stream()
+                        .map(ActivitySummary::from)
+                        .collect(Collectors.toList())
+                : new ArrayList<>();
+
+        return PageableExecutionUtils.getPage(paginatedResults, pageable, () -> totalCount);
+    }
+
+    private List<Activity> findNaturalSearchCandidates(QueryParser.ParsedQuery parsedQuery,
+                                                       Double latitude, Double longitude) {
+        // Phase one: the text index picks the best matches by textScore, so only a bounded
+        // candidate set is loaded and re-ranked in memory however large the catalog is
+        String queryText = parsedQuery.getQueryText();
+        boolean hasText = queryText != null && !queryText.isBlank();
+
+        Query query;
+        if (hasText) {
+            TextCriteria textCriteria = TextCriteria.forDefaultLanguage().matchingAny(queryText.trim().split("\\s+"));
+            query = TextQuery.queryText(textCriteria).sortByScore();
+        } else {
+            query = new Query().with(Sort.by(Sort.Direction.DESC, "createdAt"));
+        }
+        query.limit(candidateLimit);
+
         // Build base query with hard filters
-        Query query = new Query();
         List<Criteria> criteriaList = new ArrayList<>();
 
         // Base criteria
@@ -74,144 +239,160 @@ public class ActivityService {
         }
 
         if (parsedQuery.getMode() != null) {
-            criteriaList.add(Criteria.where("mode").regex("^" + Pattern.quote(parsedQuery.getMode()) + "$", "i"));
+            criteriaList.add(Criteria.where("mode").is(parsedQuery.getMode()));
         }
 
         if (parsedQuery.getTimePreference() != null && parsedQuery.getTimePreference().equals("weekend")) {
-            criteriaList.add(new Criteria().orOperator(
-                    Criteria.where("schedule.sessionDays").regex("saturday", "i"),
-                    Criteria.where("schedule.sessionDays").regex("sunday", "i")
-            ));
+            criteriaList.add(Criteria.where("schedule.sessionDays").in("saturday", "sunday"));
+        }
+
+        // Distance limit as $geoWithin/$centerSphere, answered by idx_location_coordinates_2dsphere
+        if (latitude != null && longitude != null) {
+            Circle reach = new Circle(new Point(longitude, latitude), parsedQuery.getDistanceKm() / EARTH_RADIUS_KM);
+            criteriaList.add(Criteria.where("location.coordinates").withinSphere(reach));
         }
 
         if (!criteriaList.isEmpty()) {
             query.addCriteria(new Criteria().andOperator(criteriaList.toArray(new Criteria[0])));
         }
 
+        // Summary fields plus whatever the search index reads, in case a candidate is not indexed yet
+        query.fields().include(ActivitySummary.FIELDS).include(INDEXED_TEXT_FIELDS).include(VISIBILITY_FIELDS);
+
         // Get candidate activities
         List<Activity> candidates = mongoTemplate.find(query, Activity.class);
-        log.info("Found {} candidate activities after hard filtering", candidates.size());
-
-        if (candidates.isEmpty()) {
-            return PageableExecutionUtils.getPage(new ArrayList<>(),
-                    PageRequest.of(page != null ? page : 0, size != null ? size : 20), () -> 0);
-        }
+        log.info("Found {} candidate activities after hard filtering (limit {})", candidates.size(), candidateLimit);
 
-        // Build TF-IDF index and rank by similarity
-        List<Activity> rankedActivities = rankActivitiesBySimilarity(candidates, parsedQuery.getQueryText());
-
-        // Apply proximity filtering if distance is specified
-        final List<Activity> finalRankedActivities;
-        if (parsedQuery.getDistanceKm() != null && userLatitude != null && userLongitude != null) {
-            finalRankedActivities = filterByProximity(rankedActivities, userLatitude, userLongitude, parsedQuery.getDistanceKm());
-        } else {
-            finalRankedActivities = rankedActivities; // Skip proximity filtering if no location
-        }
-
-        // Store the total count in a final variable
-        final long totalCount = finalRankedActivities.size();
-
-        // Apply pagination
-        int pageNum = page != null ? page : 0;
-        int pageSize = size != null ? size : 20;
-        int start = pageNum * pageSize;
-        int end = Math.min(start + pageSize, finalRankedActivities.size());
-
-        List<Activity> paginatedResults = start < finalRankedActivities.size() ?
-                finalRankedActivities.subList(start, end) : new ArrayList<>();
-
-        Pageable pageable = PageRequest.of(pageNum, pageSize);
+        return candidates;
+    }
 
-        return PageableExecutionUtils.getPage(paginatedResults, pageable, () -> totalCount);
+    private double snapToGeoCell(double coordinate) {
+        return (Math.floor(coordinate / geoCellDegrees) + 0.5) * geoCellDegrees;
     }
 
-    private List<Activity> rankActivitiesBySimilarity(List<Activity> activities, String queryText) {
-        if (queryText == null || queryText.trim().isEmpty() || activities.isEmpty()) {
-            return activities;
-        }
+    // Fetches summaries by id, keeping the given order and skipping ids deleted, deactivated or
+    // made private since they were cached
+    private List<ActivitySummary> loadSummariesInOrder(List<String> activityIds) {
+        Query query = new Query(Criteria.where("_id").in(activityIds)
+                .and("isActive").is(true).and("isPublic").is(true));
+        query.fields().include(ActivitySummary.FIELDS);
 
-        // Build activity texts for TF-IDF
-        List<String> activityTexts = activities.stream()
-                .map(this::buildActivityText)
-                .collect(Collectors.toList());
+        Map<String, ActivitySummary> byId = new HashMap<>();
+        for (ActivitySummary summary : mongoTemplate.find(query, ActivitySummary.class, ACTIVITIES_COLLECTION)) {
+            byId.put(summary.getId(), summary);
+        }
 
-        // Build TF-IDF index
-        tfIdfService.buildIndex(activityTexts);
+        List<ActivitySummary> ordered = new ArrayList<>(activityIds.size());
+        for (String activityId : activityIds) {
+            ActivitySummary summary = byId.get(activityId);
+            if (summary != null) {
+                ordered.add(summary);
+            }
+        }
+        return ordered;
+    }
 
-        // Get query vector
-        double[] queryVector = tfIdfService.vectorizeText(queryText);
+    // The given ids that are still active and public, in the given order. Only _id is read.
+    private List<String> liveActivityIds(List<String> activityIds) {
+        Query query = new Query(Criteria.where("_id").in(activityIds)
+                .and("isActive").is(true).and("isPublic").is(true));
+        query.fields().include("_id");
 
-        // Calculate similarities
-        List<ActivitySimilarity> similarities = new ArrayList<>();
-        for (int i = 0; i < activities.size(); i++) {
-            double[] activityVector = tfIdfService.vectorizeText(activityTexts.get(i));
-            double similarity = TfIdfService.cosineSimilarity(queryVector, activityVector);
-            similarities.add(new ActivitySimilarity(activities.get(i), similarity));
+        Set<String> live = new HashSet<>();
+        for (ActivitySummary summary : mongoTemplate.find(query, ActivitySummary.class, ACTIVITIES_COLLECTION)) {
+            live.add(summary.getId());
         }
+        return activityIds.stream().filter(live::contains).toList();
+    }
 
-        // Sort by similarity score (descending)
-        similarities.sort((a, b) -> Double.compare(b.similarity, a.similarity));
+    // Everything in a parsed query that affects the result. Query terms are sorted because scoring
+    // is bag-of-words, so "online guitar classes" and "guitar classes online" share an entry.
+    private record NaturalSearchKey(String terms, Integer priceMax, String mode, String timePreference,
+                                    Double distanceKm, Double latitude, Double longitude) {
 
-        log.info("Ranked activities by similarity - top score: {}",
-                similarities.isEmpty() ? 0 : similarities.get(0).similarity);
+        static NaturalSearchKey of(QueryParser.ParsedQuery parsedQuery, Double latitude, Double longitude) {
+            String queryText = parsedQuery.getQueryText();
+            String terms = queryText == null || queryText.isBlank() ? ""
+                    : Arrays.stream(queryText.trim().split("\\s+")).sorted().collect(Collectors.joining(" "));
 
-        return similarities.stream()
-                .map(as -> as.activity)
-                .collect(Collectors.toList());
+            return new NaturalSearchKey(terms, parsedQuery.getPriceMax(), parsedQuery.getMode(),
+                    parsedQuery.getTimePreference(),
+                    latitude != null ? parsedQuery.getDistanceKm() : null, latitude, longitude);
+        }
     }
 
-    private String buildActivityText(Activity activity) {
-        StringBuilder text = new StringBuilder();
+    // Ranked activity ids, best first, cut at search.result-cache.max-results
+    private record RankedResults(List<String> activityIds, long totalCount) {
 
-        // Weight important fields by repetition
-        if (activity.getTitle() != null) {
-            text.append(activity.getTitle()).append(" ");
-            text.append(activity.getTitle()).append(" "); // 2x weight
+        boolean covers(int end) {
+            return end <= activityIds.size() || activityIds.size() >= totalCount;
         }
 
-        if (activity.getSubject() != null) {
-            text.append(activity.getSubject()).append(" ");
-            text.append(activity.getSubject()).append(" "); // 2x weight
+        List<String> page(int offset, int limit) {
+            if (offset >= activityIds.size()) {
+                return List.of();
+            }
+            return activityIds.subList(offset, Math.min(offset + limit, activityIds.size()));
         }
+    }
 
-        if (activity.getDescription() != null) {
-            text.append(activity.getDescription()).append(" ");
+    // Returns the [offset, offset + limit) slice of the candidates ordered by similarity to the query.
+    // Only the best offset + limit scores are kept, in a bounded heap, instead of sorting every candidate.
+    // scoreFactors, when given, multiplies each candidate's relevance (by position)
+    private List<Activity> rankActivitiesBySimilarity(List<Activity> activities, String queryText, int offset, int limit,
+                                                      float[] scoreFactors) {
+        if (offset >= activities.size()) {
+            return new ArrayList<>();
         }
 
-        if (activity.getTags() != null) {
-            for (String tag : activity.getTags()) {
-                text.append(tag).append(" ");
-            }
+        if (queryText == null || queryText.trim().isEmpty()) {
+            return new ArrayList<>(activities.subList(offset, Math.min(offset + limit, activities.size())));
         }
 
-        if (activity.getActivityType() != null) {
-            text.append(activity.getActivityType()).append(" ");
-        }
+        // Only the query is tokenized per request; document terms come from the long-lived index.
+        // Candidates it has not caught up with (written on another node, or before the change sync
+        // applied them) are analyzed on the fly and left for the sync to index.
+        ActivityScorer.ScoringQuery scoringQuery = activityScorer.prepareQuery(queryText);
 
-        if (activity.getClassType() != null) {
-            text.append(activity.getClassType()).append(" ");
-        }
+        TopKCollector collector = similarityRanker.rank(activities.size(), offset + limit,
+                scoreThreshold != null ? scoreThreshold.floatValue() : null,
+                scoreFactors == null
+                        ? position -> scoringQuery.score(activities.get(position))
+                        : position -> scoringQuery.score(activities.get(position)) * scoreFactors[position]);
+
+        log.info("Ranked {} activities by similarity - top score: {}", activities.size(), collector.maxScore());
 
-        return text.toString().trim();
+        int[] ranked = collector.topPositions();
+        List<Activity> results = new ArrayList<>(Math.max(ranked.length - offset, 0));
+        for (int i = offset; i < ranked.length; i++) {
+            results.add(activities.get(ranked[i]));
+        }
+        return results;
     }
 
-    private List<Activity> filterByProximity(List<Activity> activities, double userLat, double userLon, double maxDistanceKm) {
-        return activities.stream()
-                .filter(activity -> {
-                    if (activity.getLocation() == null ||
-                            activity.getLocation().getCoordinates() == null ||
-                            activity.getLocation().getCoordinates().getCoordinates() == null ||
-                            activity.getLocation().getCoordinates().getCoordinates().size() < 2) {
-                        return false;
-                    }
+    // Relevance multiplier per candidate, falling linearly from 1 at the user's cell to
+    // 1 - distanceWeight at the edge of the requested radius
+    private float[] distanceFactors(List<Activity> activities, double userLat, double userLon, double maxDistanceKm) {
+        float[] factors = new float[activities.size()];
+
+        for (int i = 0; i < factors.length; i++) {
+            Activity.Location location = activities.get(i).getLocation();
+            if (location == null || location.getCoordinates() == null
+                    || location.getCoordinates().getCoordinates() == null
+                    || location.getCoordinates().getCoordinates().size() < 2) {
+                factors[i] = (float) (1 - distanceWeight);
+                continue;
+            }
 
-                    double activityLon = activity.getLocation().getCoordinates().getCoordinates().get(0);
-                    double activityLat = activity.getLocation().getCoordinates().getCoordinates().get(1);
+            double activityLon = location.getCoordinates().getCoordinates().get(0);
+            double activityLat = location.getCoordinates().getCoordinates().get(1);
 
-                    double distance = calculateDistance(userLat, userLon, activityLat, activityLon);
-                    return distance <= maxDistanceKm;
-                })
-                .collect(Collectors.toList());
+            double distance = calculateDistance(userLat, userLon, activityLat, activityLon);
+            double proximity = maxDistanceKm > 0 ? 1 - Math.min(distance / maxDistanceKm, 1.0) : 1.0;
+            factors[i] = (float) (1 - distanceWeight * (1 - proximity));
+        }
+
+        return factors;
     }
 
     private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
@@ -228,17 +409,6 @@ public class ActivityService {
         return distance;
     }
 
-    private static class ActivitySimilarity {
-        Activity activity;
-        double similarity;
-
-        ActivitySimilarity(Activity activity, double similarity) {
-            this.activity = activity;
-            this.similarity = similarity;
-        }
-    }
-
-
     // Existing methods...
     public Activity createActivityByTutor(Activity activity, String tutorId) {
         normalizeActivityData(activity);
@@ -262,226 +432,490 @@ public class ActivityService {
         activity.setCreatedAt(new java.util.Date());
         activity.setUpdatedAt(new java.util.Date());
         activity.setIsActive(true);
-        return activityRepository.save(activity);
+        Activity saved = activityRepository.save(activity);
+
+        activityScorer.indexActivity(saved);
+        catalogReplica.upsert(saved);
+        catalogVersion.bump();
+        return saved;
     }
 
-    public List<Activity> getActivitiesForUser(String userId) {
-        AppUser user = userService.getUserById(userId);
-        if (user.getInterests() == null || user.getInterests().isEmpty()) {
-            throw new RuntimeException("User must add interests first to see personalized activities");
-        }
-        log.info("Fetching activities for user: {} with interests: {}", userId, user.getInterests());
+    // Page of the user's materialized feed (see PersonalizedFeedService)
+    public Page<ActivitySummary> getActivitiesForUser(String userId, Integer page, Integer size) {
+        int pageNum = page != null ? page : 0;
+        int pageSize = size != null ? size : 20;
+        Pageable pageable = PageRequest.of(pageNum, pageSize);
 
-        // Create case-insensitive search for user interests
-        Query query = new Query();
-        List<Criteria> interestCriteria = new ArrayList<>();
+        // The total counts only ids still listed, so pages past the live end come back empty
+        List<String> feed = liveActivityIds(personalizedFeedService.getFeed(userId));
+        int offset = (int) pageable.getOffset();
+        List<String> pageIds = offset < feed.size()
+                ? feed.subList(offset, Math.min(offset + pageSize, feed.size()))
+                : List.of();
+        List<ActivitySummary> activities = loadSummariesInOrder(pageIds);
+        return PageableExecutionUtils.getPage(activities, pageable, feed::size);
+    }
 
-        for (String interest : user.getInterests()) {
-            String escapedInterest = Pattern.quote(interest.toLowerCase().trim());
-            interestCriteria.add(Criteria.where("subject").regex("^" + escapedInterest + "$", "i"));
-            interestCriteria.add(Criteria.where("tags").regex(escapedInterest, "i"));
-        }
+    // What a /my-feed page depends on besides the catalog version and paging
+    public Object getFeedSignature(String userId) {
+        return personalizedFeedService.getFeedSignature(userId);
+    }
+
+    public List<ActivitySummary> getAllActivitiesForUsers() {
+        Query query = new Query(Criteria.where("isActive").is(true).and("isPublic").is(true));
+        query.fields().include(ActivitySummary.FIELDS);
+        return mongoTemplate.find(query, ActivitySummary.class, ACTIVITIES_COLLECTION);
+    }
 
-        query.addCriteria(new Criteria().andOperator(
-                new Criteria().orOperator(interestCriteria.toArray(new Criteria[0])),
-                Criteria.where("isActive").is(true),
-                Criteria.where("isPublic").is(true)
-        ));
+    // Full documents straight off a Mongo cursor, oldest update first, so memory stays at one batch
+    // however large the catalog is. With updatedSince only activities changed after it are passed
+    // on, including ones that were deactivated or made private, so incremental clients can drop them.
+    public void exportActivities(Date updatedSince, Consumer<Activity> consumer) {
+        Query query = new Query();
+        if (updatedSince != null) {
+            query.addCriteria(Criteria.where("updatedAt").gt(updatedSince));
+        } else {
+            query.addCriteria(Criteria.where("isActive").is(true).and("isPublic").is(true));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "updatedAt", "_id"));
+        query.cursorBatchSize(exportBatchSize);
 
-        List<Activity> activities = mongoTemplate.find(query, Activity.class);
-        log.info("Found {} activities matching user interests", activities.size());
-        return activities;
+        try (Stream<Activity> activities = mongoTemplate.stream(query, Activity.class)) {
+            activities.forEach(consumer);
+        }
     }
 
-    public List<Activity> getAllActivitiesForUsers() {
-        return activityRepository.findByIsActiveAndIsPublic(true, true);
+    // Full document for the detail view; private or inactive activities are only visible to their tutor
+    public Activity getActivityById(String activityId, String requesterId) {
+        Activity activity = activityRepository.findById(activityId)
+                .orElseThrow(() -> new ActivityNotFoundException(activityId));
+
+        boolean visible = Boolean.TRUE.equals(activity.getIsActive()) && Boolean.TRUE.equals(activity.getIsPublic());
+        if (!visible && !Objects.equals(activity.getTutorId(), requesterId)) {
+            throw new ActivityNotFoundException(activityId);
+        }
+        return activity;
     }
 
-    public Page<Activity> getActivitiesByProximity(ActivityFilterDto filterDto) {
+    // Nearest-first search. Every ActivityFilterDto filter goes into the $geoNear query, so the geo stage
+    // only walks matching documents; the page and total then come from one $facet over its output.
+    public FilterPage<ActivitySummary> getActivitiesByProximity(ActivityFilterDto filterDto) {
         if (filterDto.getUserLatitude() == null || filterDto.getUserLongitude() == null) {
             throw new IllegalArgumentException("User latitude and longitude are required for proximity search.");
         }
+        if (StringUtils.hasText(filterDto.getSearchQuery())) {
+            // Mongo cannot combine $text with $geoNear
+            throw new IllegalArgumentException("Text search cannot be combined with proximity search; use /search/natural.");
+        }
 
         Point userLocation = new Point(filterDto.getUserLongitude(), filterDto.getUserLatitude());
         double maxDistance = (filterDto.getMaxDistanceKm() != null ? filterDto.getMaxDistanceKm() : 50); // default 50 km
-        Distance maxDistanceMeters = new Distance(maxDistance, Metrics.KILOMETERS);
 
-        NearQuery nearQuery = NearQuery.near(userLocation)
-                .maxDistance(maxDistanceMeters)
-                .spherical(true); // No distanceField() here
+        // Kilometre metric: maxDistance is read in km and the computed distance is written in km
+        NearQuery nearQuery = NearQuery.near(userLocation, Metrics.KILOMETERS)
+                .maxDistance(maxDistance)
+                .spherical(true)
+                .query(buildFilterQuery(filterDto, null));
+
+        int page = filterDto.getPage() != null ? filterDto.getPage() : 0;
+        int size = filterDto.getSize() != null ? filterDto.getSize() : 20;
+        Pageable pageable = PageRequest.of(page, size);
 
         Aggregation aggregation = Aggregation.newAggregation(
-                Aggregation.geoNear(nearQuery, "distance"),
-                Aggregation.match(
-                        Criteria.where("isActive").is(true)
-                                .and("isPublic").is(true)
-                ),
-                // Skip and limit for pagination
-                Aggregation.skip((filterDto.getPage() != null ? filterDto.getPage() : 0) * (filterDto.getSize() != null ? filterDto.getSize() : 20)),
-                Aggregation.limit(filterDto.getSize() != null ? filterDto.getSize() : 20)
+                Aggregation.geoNear(nearQuery, "distanceKm"),
+                Aggregation.facet(
+                                Aggregation.skip(pageable.getOffset()),
+                                Aggregation.limit(pageable.getPageSize()),
+                                summaryProjection("distanceKm"))
+                        .as("content")
+                        .and(Aggregation.count().as("count"))
+                        .as("total")
         );
 
-        AggregationResults<Activity> results = mongoTemplate.aggregate(aggregation, "activities", Activity.class);
-
-        List<Activity> activities = results.getMappedResults();
+        Document result = mongoTemplate.aggregate(aggregation, ACTIVITIES_COLLECTION, Document.class)
+                .getUniqueMappedResult();
 
-        Pageable pageable = PageRequest.of(
-                filterDto.getPage() != null ? filterDto.getPage() : 0,
-                filterDto.getSize() != null ? filterDto.getSize() : 20
-        );
+        List<ActivitySummary> activities = new ArrayList<>();
+        long total = 0;
+        if (result != null) {
+            for (Document document : result.getList("content", Document.class)) {
+                activities.add(mongoTemplate.getConverter().read(ActivitySummary.class, document));
+            }
+            List<Document> count = result.getList("total", Document.class);
+            if (!count.isEmpty()) {
+                total = ((Number) count.get(0).get("count")).longValue();
+            }
+        }
 
-        return PageableExecutionUtils.getPage(activities, pageable, () -> activities.size());
+        return new FilterPage<>(activities, pageable, total, false);
     }
 
-    // Updated comprehensive filtering method with case-insensitive search
-    public Page<Activity> getFilteredActivities(ActivityFilterDto filterDto) {
+    public FilterPage<ActivitySummary> getFilteredActivities(ActivityFilterDto filterDto) {
         log.info("Applying filters: {}", filterDto);
 
-        Query query = new Query();
-        List<Criteria> criteriaList = new ArrayList<>();
-
-        // Base criteria - always include
-        criteriaList.add(Criteria.where("isActive").is(true));
-        criteriaList.add(Criteria.where("isPublic").is(true));
+        Pageable pageable = createPageable(filterDto);
 
-        // Text search - case insensitive
-        if (StringUtils.hasText(filterDto.getSearchQuery())) {
-            String searchQuery = filterDto.getSearchQuery().toLowerCase().trim();
-            TextCriteria textCriteria = TextCriteria.forDefaultLanguage()
-                    .matchingAny(searchQuery.split("\\s+"));
-            query.addCriteria(textCriteria);
+        // In-memory replica first (search.replica.enabled); it returns null for anything it cannot answer
+        FilterPage<ActivitySummary> replicaPage = catalogReplica.filter(filterDto, pageable);
+        if (replicaPage != null) {
+            log.debug("Filter served from catalog replica ({} matches)", replicaPage.getTotalElements());
+            return replicaPage;
         }
 
-        // Subject filter - case insensitive
-        if (filterDto.getSubjects() != null && !filterDto.getSubjects().isEmpty()) {
-            List<Criteria> subjectCriteria = filterDto.getSubjects().stream()
-                    .filter(subject -> subject != null && !subject.trim().isEmpty())
-                    .map(subject -> {
-                        String escapedSubject = Pattern.quote(subject.toLowerCase().trim());
-                        return Criteria.where("subject").regex("^" + escapedSubject + "$", "i");
-                    })
-                    .collect(Collectors.toList());
+        return filterInMongo(filterDto, pageable);
+    }
 
-            if (subjectCriteria.size() == 1) {
-                criteriaList.add(subjectCriteria.get(0));
-            } else {
-                criteriaList.add(new Criteria().orOperator(subjectCriteria.toArray(new Criteria[0])));
+    // Page and total come from one aggregation: $match and $sort (index-backed) feed a $facet that
+    // slices the page and counts the same stream, so the filter is evaluated once per request
+    FilterPage<ActivitySummary> filterInMongo(ActivityFilterDto filterDto, Pageable pageable) {
+        boolean approximate = Boolean.TRUE.equals(filterDto.getApproximateTotal());
+        long scanLimit = filterScanLimit(pageable);
+
+        TypedAggregation<Activity> aggregation = filterAggregation(filterDto, pageable);
+        log.info("Final MongoDB aggregation: {}", aggregation);
+
+        Document result = mongoTemplate.aggregate(aggregation, Document.class).getUniqueMappedResult();
+
+        List<ActivitySummary> activities = new ArrayList<>();
+        long counted = 0;
+        if (result != null) {
+            for (Document document : result.getList("content", Document.class)) {
+                activities.add(mongoTemplate.getConverter().read(ActivitySummary.class, document));
+            }
+            List<Document> total = result.getList("total", Document.class);
+            if (!total.isEmpty()) {
+                counted = ((Number) total.get(0).get("count")).longValue();
             }
         }
 
-        // Activity type filter - case insensitive
-        if (filterDto.getActivityTypes() != null && !filterDto.getActivityTypes().isEmpty()) {
-            List<Criteria> typeCriteria = filterDto.getActivityTypes().stream()
-                    .filter(type -> type != null && !type.trim().isEmpty())
-                    .map(type -> {
-                        String escapedType = Pattern.quote(type.toLowerCase().trim());
-                        return Criteria.where("activityType").regex("^" + escapedType + "$", "i");
-                    })
-                    .collect(Collectors.toList());
+        boolean totalCapped = approximate && counted >= scanLimit;
+        long total = totalCapped ? Math.max(filterCountCap, counted) : counted;
 
-            if (typeCriteria.size() == 1) {
-                criteriaList.add(typeCriteria.get(0));
-            } else {
-                criteriaList.add(new Criteria().orOperator(typeCriteria.toArray(new Criteria[0])));
-            }
+        log.info("Found {} activities out of {}{} total", activities.size(), total, totalCapped ? "+" : "");
+
+        return new FilterPage<>(activities, pageable, total, totalCapped);
+    }
+
+    // $match and $sort stay adjacent so the planner pushes both into the query layer and an
+    // (isActive, isPublic, key) index provides the order; summaries are only projected for the page
+    TypedAggregation<Activity> filterAggregation(ActivityFilterDto filterDto, Pageable pageable) {
+        Query query = buildFilterQuery(filterDto, null);
+
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(rawCriteria(query.getQueryObject())));
+        stages.add(Aggregation.sort(pageable.getSort()));
+
+        // Approximate mode stops the scan right after the count cap (or the requested page, if deeper)
+        if (Boolean.TRUE.equals(filterDto.getApproximateTotal())) {
+            stages.add(Aggregation.limit(filterScanLimit(pageable)));
         }
 
-        // Mode filter - case insensitive
-        if (filterDto.getModes() != null && !filterDto.getModes().isEmpty()) {
-            List<Criteria> modeCriteria = filterDto.getModes().stream()
-                    .filter(mode -> mode != null && !mode.trim().isEmpty())
-                    .map(mode -> {
-                        String escapedMode = Pattern.quote(mode.toLowerCase().trim());
-                        return Criteria.where("mode").regex("^" + escapedMode + "$", "i");
-                    })
-                    .collect(Collectors.toList());
+        stages.add(Aggregation.facet(
+                        Aggregation.skip(pageable.getOffset()),
+                        Aggregation.limit(pageable.getPageSize()),
+                        summaryProjection())
+                .as("content")
+                .and(Aggregation.count().as("count"))
+                .as("total"));
+
+        // A sort no index covers (custom sortBy, or filters that steer the planner elsewhere) may spill
+        // instead of failing at the in-memory sort limit
+        return Aggregation.newAggregation(Activity.class, stages)
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+    }
 
-            if (modeCriteria.size() == 1) {
-                criteriaList.add(modeCriteria.get(0));
-            } else {
-                criteriaList.add(new Criteria().orOperator(modeCriteria.toArray(new Criteria[0])));
-            }
+    private long filterScanLimit(Pageable pageable) {
+        return Math.max(filterCountCap + 1L, pageable.getOffset() + pageable.getPageSize());
+    }
+
+    // Option counts for every facet dimension in one aggregation. The first $match applies the filters
+    // without a facet (active/public, text, subject, features...); inside $facet each dimension then adds
+    // the remaining facet filters except its own. Cached per normalized filter and catalog version.
+    public ActivityFacets getFacetCounts(ActivityFilterDto filterDto) {
+        ActivityFilterDto signature = facetSignature(filterDto);
+
+        Cache facetCache = cacheManager.getCache(CacheConfig.FACET_COUNTS);
+        VersionedCacheKey cacheKey = new VersionedCacheKey("facets", catalogVersion.current(), signature);
+
+        ActivityFacets cached = facetCache != null ? facetCache.get(cacheKey, ActivityFacets.class) : null;
+        if (cached != null) {
+            return cached;
         }
 
-        // Difficulty filter - case insensitive
-        if (filterDto.getDifficulties() != null && !filterDto.getDifficulties().isEmpty()) {
-            List<Criteria> difficultyCriteria = filterDto.getDifficulties().stream()
-                    .filter(difficulty -> difficulty != null && !difficulty.trim().isEmpty())
-                    .map(difficulty -> {
-                        String escapedDifficulty = Pattern.quote(difficulty.toLowerCase().trim());
-                        return Criteria.where("difficulty").regex("^" + escapedDifficulty + "$", "i");
-                    })
-                    .collect(Collectors.toList());
+        ActivityFacets facets = computeFacetCounts(signature);
+        if (facetCache != null) {
+            facetCache.put(cacheKey, facets);
+        }
+        return facets;
+    }
 
-            if (difficultyCriteria.size() == 1) {
-                criteriaList.add(difficultyCriteria.get(0));
-            } else {
-                criteriaList.add(new Criteria().orOperator(difficultyCriteria.toArray(new Criteria[0])));
-            }
+    private ActivityFacets computeFacetCounts(ActivityFilterDto filterDto) {
+        ActivityFilterDto baseFilter = filterDto.toBuilder()
+                .modes(null)
+                .difficulties(null)
+                .cities(null)
+                .priceTypes(null)
+                .sessionDays(null)
+                .minPrice(null)
+                .maxPrice(null)
+                .minRating(null)
+                .build();
+        Query baseQuery = buildFilterQuery(baseFilter, null);
+
+        List<Integer> priceBoundaries = Arrays.stream(priceFacetBoundaries).sorted().distinct().boxed()
+                .collect(Collectors.toCollection(ArrayList::new));
+        priceBoundaries.add(Integer.MAX_VALUE);
+
+        Document facets = new Document()
+                .append("total", facetPipeline(filterDto, null,
+                        new Document("$count", "count")))
+                .append(FACET_MODE, facetPipeline(filterDto, FACET_MODE,
+                        new Document("$sortByCount", "$mode")))
+                .append(FACET_DIFFICULTY, facetPipeline(filterDto, FACET_DIFFICULTY,
+                        new Document("$sortByCount", "$difficulty")))
+                .append(FACET_CITY, facetPipeline(filterDto, FACET_CITY,
+                        new Document("$match", new Document("location.city", new Document("$nin", Arrays.asList(null, "")))),
+                        new Document("$sortByCount", "$location.city"),
+                        new Document("$limit", cityFacetLimit)))
+                .append(FACET_PRICE_TYPE, facetPipeline(filterDto, FACET_PRICE_TYPE,
+                        new Document("$sortByCount", "$pricing.priceType")))
+                .append(FACET_SESSION_DAYS, facetPipeline(filterDto, FACET_SESSION_DAYS,
+                        new Document("$unwind", "$schedule.sessionDays"),
+                        new Document("$sortByCount", "$schedule.sessionDays")))
+                .append(FACET_PRICE, facetPipeline(filterDto, FACET_PRICE,
+                        bucket("$pricing.price", priceBoundaries)))
+                .append(FACET_RATING, facetPipeline(filterDto, FACET_RATING,
+                        bucket("$reviews.averageRating", Arrays.stream(RATING_FACET_BOUNDARIES).boxed().toList())));
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(rawCriteria(baseQuery.getQueryObject())),
+                context -> new Document("$facet", facets));
+
+        Document result = mongoTemplate.aggregate(aggregation, ACTIVITIES_COLLECTION, Document.class)
+                .getUniqueMappedResult();
+        if (result == null) {
+            result = new Document();
         }
 
-        // Location filters - case insensitive
-        if (filterDto.getCities() != null && !filterDto.getCities().isEmpty()) {
-            List<Criteria> cityCriteria = filterDto.getCities().stream()
-                    .filter(city -> city != null && !city.trim().isEmpty())
-                    .map(city -> {
-                        String escapedCity = Pattern.quote(city.toLowerCase().trim());
-                        return Criteria.where("location.city").regex("^" + escapedCity + "$", "i");
-                    })
-                    .collect(Collectors.toList());
+        Map<String, List<ActivityFacets.FacetCount>> counts = new LinkedHashMap<>();
+        for (String facet : List.of(FACET_MODE, FACET_DIFFICULTY, FACET_CITY, FACET_PRICE_TYPE, FACET_SESSION_DAYS)) {
+            counts.put(facet, valueCounts(result.getList(facet, Document.class, List.of())));
+        }
+        counts.put(FACET_PRICE, priceCounts(result.getList(FACET_PRICE, Document.class, List.of()), priceBoundaries));
+        counts.put(FACET_RATING, ratingCounts(result.getList(FACET_RATING, Document.class, List.of())));
 
-            if (cityCriteria.size() == 1) {
-                criteriaList.add(cityCriteria.get(0));
-            } else {
-                criteriaList.add(new Criteria().orOperator(cityCriteria.toArray(new Criteria[0])));
-            }
+        List<Document> total = result.getList("total", Document.class, List.of());
+        long totalCount = total.isEmpty() ? 0 : ((Number) total.get(0).get("count")).longValue();
+
+        return new ActivityFacets(totalCount, counts);
+    }
+
+    // $facet sub-pipeline: the other dimensions' filters, then the counting stages
+    private static List<Document> facetPipeline(ActivityFilterDto filterDto, String facet, Document... stages) {
+        List<Document> pipeline = new ArrayList<>();
+        List<Criteria> criteriaList = facetCriteria(filterDto, facet);
+        if (!criteriaList.isEmpty()) {
+            pipeline.add(new Document("$match",
+                    new Criteria().andOperator(criteriaList.toArray(new Criteria[0])).getCriteriaObject()));
         }
+        pipeline.addAll(Arrays.asList(stages));
+        return pipeline;
+    }
 
-        if (filterDto.getStates() != null && !filterDto.getStates().isEmpty()) {
-            List<Criteria> stateCriteria = filterDto.getStates().stream()
-                    .filter(state -> state != null && !state.trim().isEmpty())
-                    .map(state -> {
-                        String escapedState = Pattern.quote(state.toLowerCase().trim());
-                        return Criteria.where("location.state").regex("^" + escapedState + "$", "i");
-                    })
-                    .collect(Collectors.toList());
+    // Activities without a value, or outside the boundaries, fall into the "other" bucket, which is not reported
+    private static Document bucket(String groupBy, List<? extends Number> boundaries) {
+        return new Document("$bucket", new Document("groupBy", groupBy)
+                .append("boundaries", boundaries)
+                .append("default", "other")
+                .append("output", new Document("count", new Document("$sum", 1))));
+    }
 
-            if (stateCriteria.size() == 1) {
-                criteriaList.add(stateCriteria.get(0));
-            } else {
-                criteriaList.add(new Criteria().orOperator(stateCriteria.toArray(new Criteria[0])));
+    private static List<ActivityFacets.FacetCount> valueCounts(List<Document> groups) {
+        List<ActivityFacets.FacetCount> counts = new ArrayList<>();
+        for (Document group : groups) {
+            if (group.get("_id") instanceof String value && !value.isEmpty()) {
+                counts.add(new ActivityFacets.FacetCount(value, ((Number) group.get("count")).longValue()));
             }
         }
+        return counts;
+    }
 
-        // Price range filter
-        if (filterDto.getMinPrice() != null || filterDto.getMaxPrice() != null) {
-            Criteria priceCriteria = Criteria.where("pricing.price");
-            if (filterDto.getMinPrice() != null) {
-                priceCriteria = priceCriteria.gte(filterDto.getMinPrice());
+    // Ranges in ascending order, labelled "500-1000" (min inclusive, max exclusive) or "10000+" for the last one
+    private static List<ActivityFacets.FacetCount> priceCounts(List<Document> buckets, List<Integer> boundaries) {
+        Map<Integer, Long> byLowerBound = new HashMap<>();
+        for (Document bucket : buckets) {
+            if (bucket.get("_id") instanceof Number lowerBound) {
+                byLowerBound.put(lowerBound.intValue(), ((Number) bucket.get("count")).longValue());
             }
-            if (filterDto.getMaxPrice() != null) {
-                priceCriteria = priceCriteria.lte(filterDto.getMaxPrice());
+        }
+
+        List<ActivityFacets.FacetCount> counts = new ArrayList<>();
+        for (int i = 0; i < boundaries.size() - 1; i++) {
+            int lowerBound = boundaries.get(i);
+            String label = i == boundaries.size() - 2
+                    ? lowerBound + "+"
+                    : lowerBound + "-" + boundaries.get(i + 1);
+            counts.add(new ActivityFacets.FacetCount(label, byLowerBound.getOrDefault(lowerBound, 0L)));
+        }
+        return counts;
+    }
+
+    // minRating options, highest first; each counts every activity rated at least that much
+    private static List<ActivityFacets.FacetCount> ratingCounts(List<Document> buckets) {
+        Map<Integer, Long> byLowerBound = new HashMap<>();
+        for (Document bucket : buckets) {
+            if (bucket.get("_id") instanceof Number lowerBound) {
+                byLowerBound.put(lowerBound.intValue(), ((Number) bucket.get("count")).longValue());
             }
-            criteriaList.add(priceCriteria);
         }
 
-        // Price type filter - case insensitive
-        if (filterDto.getPriceTypes() != null && !filterDto.getPriceTypes().isEmpty()) {
-            List<Criteria> priceTypeCriteria = filterDto.getPriceTypes().stream()
-                    .filter(priceType -> priceType != null && !priceType.trim().isEmpty())
-                    .map(priceType -> {
-                        String escapedPriceType = Pattern.quote(priceType.toLowerCase().trim());
-                        return Criteria.where("pricing.priceType").regex("^" + escapedPriceType + "$", "i");
-                    })
-                    .collect(Collectors.toList());
+        List<ActivityFacets.FacetCount> counts = new ArrayList<>();
+        long atLeast = 0;
+        for (int i = RATING_FACET_BOUNDARIES.length - 2; i >= 0; i--) {
+            int minRating = (int) RATING_FACET_BOUNDARIES[i];
+            atLeast += byLowerBound.getOrDefault(minRating, 0L);
+            counts.add(new ActivityFacets.FacetCount(String.valueOf(minRating), atLeast));
+        }
+        return counts;
+    }
 
-            if (priceTypeCriteria.size() == 1) {
-                criteriaList.add(priceTypeCriteria.get(0));
-            } else {
-                criteriaList.add(new Criteria().orOperator(priceTypeCriteria.toArray(new Criteria[0])));
+    // Only the fields that affect the counts, with list filters normalized the way the query uses them,
+    // so equivalent filter states share one cache entry whatever page or sort the UI is on
+    private static ActivityFilterDto facetSignature(ActivityFilterDto filterDto) {
+        return filterDto.toBuilder()
+                .subjects(normalizedFilterValues(filterDto.getSubjects()))
+                .activityTypes(normalizedFilterValues(filterDto.getActivityTypes()))
+                .modes(normalizedFilterValues(filterDto.getModes()))
+                .difficulties(normalizedFilterValues(filterDto.getDifficulties()))
+                .cities(normalizedFilterValues(filterDto.getCities()))
+                .states(normalizedFilterValues(filterDto.getStates()))
+                .priceTypes(normalizedFilterValues(filterDto.getPriceTypes()))
+                .sessionDays(normalizedFilterValues(filterDto.getSessionDays()))
+                .searchQuery(StringUtils.hasText(filterDto.getSearchQuery())
+                        ? filterDto.getSearchQuery().toLowerCase().trim() : null)
+                .userLatitude(null)
+                .userLongitude(null)
+                .maxDistanceKm(null)
+                .sortBy(null)
+                .sortDirection(null)
+                .page(null)
+                .size(null)
+                .cursor(null)
+                .approximateTotal(null)
+                .build();
+    }
+
+    private static List<String> normalizedFilterValues(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        List<String> normalized = values.stream()
+                .filter(value -> value != null && !value.trim().isEmpty())
+                .map(value -> value.toLowerCase().trim())
+                .distinct()
+                .sorted()
+                .toList();
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    // Raw $project: Aggregation.project() would flatten nested paths such as location.city
+    private static AggregationOperation summaryProjection(String... computedFields) {
+        Document fields = new Document();
+        for (String field : ActivitySummary.FIELDS) {
+            fields.append(field, 1);
+        }
+        for (String field : computedFields) {
+            fields.append(field, 1);
+        }
+        return context -> new Document("$project", fields);
+    }
+
+    // The filter query is already built from Criteria; hand its document to $match as-is
+    private static CriteriaDefinition rawCriteria(Document queryObject) {
+        return new CriteriaDefinition() {
+            @Override
+            public Document getCriteriaObject() {
+                return queryObject;
+            }
+
+            @Override
+            public String getKey() {
+                return null;
             }
+        };
+    }
+
+    // Keyset pagination: instead of skipping, each page starts right after the sort key and _id
+    // of the previous page's last activity, so every page is a range scan of the sort index
+    public CursorPage<ActivitySummary> getFilteredActivitiesByCursor(ActivityFilterDto filterDto) {
+        log.info("Applying filters with cursor: {}", filterDto);
+
+        int size = filterDto.getSize() != null ? filterDto.getSize() : 20;
+        Sort.Order order = resolveSort(filterDto).iterator().next();
+        String sortField = order.getProperty();
+        if (!SEEKABLE_SORT_FIELDS.contains(sortField)) {
+            throw new IllegalArgumentException("Cursor pagination does not support sorting by " + filterDto.getSortBy());
+        }
+
+        FilterCursor after = StringUtils.hasText(filterDto.getCursor())
+                ? FilterCursor.decode(filterDto.getCursor(), sortField, order.getDirection())
+                : null;
+
+        Query query = buildFilterQuery(filterDto, after != null ? after.toCriteria() : null);
+        query.with(Sort.by(order.getDirection(), sortField).and(Sort.by(order.getDirection(), "_id")));
+
+        // One extra row tells whether there is a next page without counting
+        query.limit(size + 1);
+        query.fields().include(ActivitySummary.FIELDS);
+
+        log.info("Final MongoDB query: {}", query);
+
+        List<ActivitySummary> activities = mongoTemplate.find(query, ActivitySummary.class, ACTIVITIES_COLLECTION);
+        boolean hasMore = activities.size() > size;
+        if (hasMore) {
+            activities = new ArrayList<>(activities.subList(0, size));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            ActivitySummary last = activities.get(activities.size() - 1);
+            Document lastDocument = new Document();
+            mongoTemplate.getConverter().write(last, lastDocument);
+            Object sortValue = lastDocument.getEmbedded(Arrays.asList(sortField.split("\\.")), Object.class);
+            nextCursor = new FilterCursor(sortField, order.getDirection(), sortValue, lastDocument.get("_id")).encode();
         }
 
+        return new CursorPage<>(activities, size, nextCursor, hasMore);
+    }
+
+    private Query buildFilterQuery(ActivityFilterDto filterDto, Criteria seekCriteria) {
+        Query query = new Query();
+        List<Criteria> criteriaList = new ArrayList<>();
+
+        // Base criteria - always include
+        criteriaList.add(Criteria.where("isActive").is(true));
+        criteriaList.add(Criteria.where("isPublic").is(true));
+
+        // Text search - case insensitive
+        if (StringUtils.hasText(filterDto.getSearchQuery())) {
+            String searchQuery = filterDto.getSearchQuery().toLowerCase().trim();
+            TextCriteria textCriteria = TextCriteria.forDefaultLanguage()
+                    .matchingAny(searchQuery.split("\\s+"));
+            query.addCriteria(textCriteria);
+        }
+
+        // Subject filter - values are stored normalized, so exact matches can use the indexes
+        addNormalizedIn(criteriaList, "subject", filterDto.getSubjects());
+
+        // Activity type filter
+        addNormalizedIn(criteriaList, "activityType", filterDto.getActivityTypes());
+
+        // Mode, difficulty, city, price type, price, rating and session day filters
+        criteriaList.addAll(facetCriteria(filterDto, null));
+
+        // Location filters
+        addNormalizedIn(criteriaList, "location.state", filterDto.getStates());
+
         // Age range filter
         if (filterDto.getMinAge() != null || filterDto.getMaxAge() != null) {
             if (filterDto.getMinAge() != null && filterDto.getMaxAge() != null) {
@@ -506,11 +940,6 @@ public class ActivityService {
             criteriaList.add(durationCriteria);
         }
 
-        // Rating filter
-        if (filterDto.getMinRating() != null) {
-            criteriaList.add(Criteria.where("reviews.averageRating").gte(filterDto.getMinRating()));
-        }
-
         // Boolean filters
         if (filterDto.getDemoAvailable() != null) {
             criteriaList.add(Criteria.where("demoAvailable").is(filterDto.getDemoAvailable()));
@@ -539,44 +968,85 @@ public class ActivityService {
             criteriaList.add(Criteria.where("schedule.selfPaced").is(filterDto.getSelfPaced()));
         }
 
-        if (filterDto.getSessionDays() != null && !filterDto.getSessionDays().isEmpty()) {
-            List<Criteria> sessionDayCriteria = filterDto.getSessionDays().stream()
-                    .filter(day -> day != null && !day.trim().isEmpty())
-                    .map(day -> {
-                        String escapedDay = Pattern.quote(day.toLowerCase().trim());
-                        return Criteria.where("schedule.sessionDays").regex(escapedDay, "i");
-                    })
-                    .collect(Collectors.toList());
-
-            if (sessionDayCriteria.size() == 1) {
-                criteriaList.add(sessionDayCriteria.get(0));
-            } else {
-                criteriaList.add(new Criteria().orOperator(sessionDayCriteria.toArray(new Criteria[0])));
-            }
+        if (seekCriteria != null) {
+            criteriaList.add(seekCriteria);
         }
 
         if (!criteriaList.isEmpty()) {
             query.addCriteria(new Criteria().andOperator(criteriaList.toArray(new Criteria[criteriaList.size()])));
         }
 
-        // Add sorting
-        Pageable pageable = createPageable(filterDto);
-        query.with(pageable);
+        return query;
+    }
 
-        log.info("Final MongoDB query: {}", query);
+    // Criteria for the filters that have a facet dimension (see FACET_*), except the excluded one
+    private static List<Criteria> facetCriteria(ActivityFilterDto filterDto, String excludedFacet) {
+        List<Criteria> criteriaList = new ArrayList<>();
 
-        List<Activity> activities = mongoTemplate.find(query, Activity.class);
-        long total = mongoTemplate.count(Query.of(query).limit(-1).skip(-1), Activity.class);
+        if (!FACET_MODE.equals(excludedFacet)) {
+            addNormalizedIn(criteriaList, "mode", filterDto.getModes());
+        }
+        if (!FACET_DIFFICULTY.equals(excludedFacet)) {
+            addNormalizedIn(criteriaList, "difficulty", filterDto.getDifficulties());
+        }
+        if (!FACET_CITY.equals(excludedFacet)) {
+            addNormalizedIn(criteriaList, "location.city", filterDto.getCities());
+        }
+        if (!FACET_PRICE_TYPE.equals(excludedFacet)) {
+            addNormalizedIn(criteriaList, "pricing.priceType", filterDto.getPriceTypes());
+        }
+        if (!FACET_SESSION_DAYS.equals(excludedFacet)) {
+            addNormalizedIn(criteriaList, "schedule.sessionDays", filterDto.getSessionDays());
+        }
 
-        log.info("Found {} activities out of {} total", activities.size(), total);
+        // Price range filter
+        if (!FACET_PRICE.equals(excludedFacet) && (filterDto.getMinPrice() != null || filterDto.getMaxPrice() != null)) {
+            Criteria priceCriteria = Criteria.where("pricing.price");
+            if (filterDto.getMinPrice() != null) {
+                priceCriteria = priceCriteria.gte(filterDto.getMinPrice());
+            }
+            if (filterDto.getMaxPrice() != null) {
+                priceCriteria = priceCriteria.lte(filterDto.getMaxPrice());
+            }
+            criteriaList.add(priceCriteria);
+        }
 
-        return PageableExecutionUtils.getPage(activities, pageable, () -> total);
+        // Rating filter
+        if (!FACET_RATING.equals(excludedFacet) && filterDto.getMinRating() != null) {
+            criteriaList.add(Criteria.where("reviews.averageRating").gte(filterDto.getMinRating()));
+        }
+
+        return criteriaList;
+    }
+
+    // Filter fields are lowercased and trimmed on write (normalizeActivityData, ActivityDataMigration),
+    // so matching them as plain equality keeps the query an index seek instead of a regex scan
+    private static void addNormalizedIn(List<Criteria> criteriaList, String field, List<String> values) {
+        if (values == null) {
+            return;
+        }
+
+        List<String> normalized = values.stream()
+                .filter(value -> value != null && !value.trim().isEmpty())
+                .map(value -> value.toLowerCase().trim())
+                .distinct()
+                .collect(Collectors.toList());
+
+        if (normalized.size() == 1) {
+            criteriaList.add(Criteria.where(field).is(normalized.get(0)));
+        } else if (!normalized.isEmpty()) {
+            criteriaList.add(Criteria.where(field).in(normalized));
+        }
     }
 
     private Pageable createPageable(ActivityFilterDto filterDto) {
         int page = filterDto.getPage() != null ? filterDto.getPage() : 0;
         int size = filterDto.getSize() != null ? filterDto.getSize() : 20;
 
+        return PageRequest.of(page, size, resolveSort(filterDto));
+    }
+
+    private Sort resolveSort(ActivityFilterDto filterDto) {
         Sort sort = Sort.unsorted();
 
         if (filterDto.getSortBy() != null) {
@@ -613,7 +1083,7 @@ public class ActivityService {
             sort = Sort.by(Sort.Direction.DESC, "createdAt");
         }
 
-        return PageRequest.of(page, size, sort);
+        return sort;
     }
 
     // Keep the original normalization for data storage
@@ -0,0 +1,30 @@
+package com.example.learnverse.activity.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "search.bm25f")
+public class Bm25fProperties {
+
+    // Term frequency saturation
+    private double k1 = 1.2;
+
+    // Per-field boost and length normalization, keyed title, subject, description, tags, activity-type, class-type
+    private Map<String, FieldWeight> fields = new HashMap<>();
+
+    @Data
+    public static class FieldWeight {
+        private double boost = 1.0;
+        private double b = 0.75;
+    }
+
+    public FieldWeight weightFor(String field) {
+        return fields.getOrDefault(field, new FieldWeight());
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.nlp.TermDictionary;
+import com.example.learnverse.activity.nlp.TextAnalyzer;
+import com.example.learnverse.config.CacheConfig;
+import com.example.learnverse.config.VersionedCacheKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "search.scorer", havingValue = "bm25f")
+public class Bm25fScorer extends SnapshotActivityScorer<Bm25fScorer.IndexedDocument, Bm25fScorer.IndexSnapshot> {
+
+//    - BM25F relevance over separately indexed activity fields
+//    - Per-field term frequencies are stored once at index time
+//    - Field boosts are applied at query time, so tuning them needs no reindex
+//    - Field length normalization is precomputed per document
+//    - Same immutable snapshot publishing as TfIdfService (SnapshotActivityScorer)
+//    - Analyzed query terms (ids + idf weights) are cached per index version
+
+
+    enum Field {
+        TITLE("title", Activity::getTitle),
+        SUBJECT("subject", Activity::getSubject),
+        DESCRIPTION("description", Activity::getDescription),
+        TAGS("tags", activity -> activity.getTags() != null ? String.join(" ", activity.getTags()) : null),
+        ACTIVITY_TYPE("activity-type", Activity::getActivityType),
+        CLASS_TYPE("class-type", Activity::getClassType);
+
+        final String key;
+        final Function<Activity, String> extractor;
+
+        Field(String key, Function<Activity, String> extractor) {
+            this.key = key;
+            this.extractor = extractor;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private final Bm25fProperties properties;
+    private final TextAnalyzer textAnalyzer;
+    private final CacheManager cacheManager;
+
+    public Bm25fScorer(Bm25fProperties properties, TextAnalyzer textAnalyzer, CacheManager cacheManager) {
+        super(IndexSnapshot.EMPTY);
+        this.properties = properties;
+        this.textAnalyzer = textAnalyzer;
+        this.cacheManager = cacheManager;
+    }
+
+    static final class IndexedDocument extends TermDocument {
+        final int[] fieldFrequencies;  // one row of FIELDS.length counts per term
+        final int[] fieldLengths;
+        final float[] lengthNorms;     // per field: 1 / (1 - b + b * length / averageLength)
+
+        IndexedDocument(int[] termIds, int[] fieldFrequencies, int[] fieldLengths, float[] lengthNorms) {
+            super(termIds);
+            this.fieldFrequencies = fieldFrequencies;
+            this.fieldLengths = fieldLengths;
+            this.lengthNorms = lengthNorms;
+        }
+    }
+
+    static final class IndexSnapshot extends Snapshot<IndexedDocument> {
+        static final IndexSnapshot EMPTY = new IndexSnapshot(0, new TermDictionary(), new int[0], Map.of(),
+                new long[FIELDS.length], 0);
+
+        final long[] totalFieldLengths;
+
+        IndexSnapshot(long version, TermDictionary dictionary, int[] documentFrequencies,
+                      Map<String, IndexedDocument> documents, long[] totalFieldLengths, int changesSinceRefresh) {
+            super(version, dictionary, documentFrequencies, documents, changesSinceRefresh);
+            this.totalFieldLengths = totalFieldLengths;
+        }
+    }
+
+    // Query term ids with idf * query term frequency, ascending by term id
+    private record QueryTerms(int[] termIds, float[] weights) {
+    }
+
+    @Override
+    public ScoringQuery prepareQuery(String queryText) {
+        IndexSnapshot current = snapshot.get();
+
+        QueryTerms queryTerms = cachedQueryTerms(current, queryText);
+        int[] termIds = queryTerms.termIds();
+        float[] termWeights = queryTerms.weights();
+
+        float[] boosts = new float[FIELDS.length];
+        for (Field field : FIELDS) {
+            boosts[field.ordinal()] = (float) properties.weightFor(field.key).getBoost();
+        }
+        float k1 = (float) properties.getK1();
+
+        return new ScoringQuery() {
+            @Override
+            public boolean isEmpty() {
+                return termIds.length == 0;
+            }
+
+            @Override
+            public float score(Activity activity) {
+                if (termIds.length == 0) {
+                    return 0.0f;
+                }
+                IndexedDocument document = current.documents.get(activity.getId());
+                if (document == null) {
+                    document = analyzeUnindexed(current, activity);
+                }
+                return scoreDocument(document, termIds, termWeights, boosts, k1);
+            }
+        };
+    }
+
+    // Normalized against the snapshot's average field lengths, as if it were the batch's only change
+    private IndexedDocument analyzeUnindexed(IndexSnapshot current, Activity activity) {
+        IndexedDocument analyzed = analyzeDocument(activity, unindexedTerms(current.dictionary));
+        double[] averageFieldLengths = averageFieldLengths(current.totalFieldLengths, current.documents.size());
+        return new IndexedDocument(analyzed.termIds, analyzed.fieldFrequencies, analyzed.fieldLengths,
+                lengthNorms(analyzed.fieldLengths, averageFieldLengths));
+    }
+
+    // Per-field term frequencies and lengths; the length norms are left to the caller
+    private IndexedDocument analyzeDocument(Activity activity, TermResolver terms) {
+        // Keyed termId * FIELDS.length + field, so sorted keys group each term's fields together
+        TermCounter termFieldCounts = new TermCounter();
+        int[] fieldLengths = new int[FIELDS.length];
+
+        for (Field field : FIELDS) {
+            int f = field.ordinal();
+            textAnalyzer.analyze(field.extractor.apply(activity), (buffer, length) -> {
+                termFieldCounts.increment(terms.termId(buffer, length) * FIELDS.length + f);
+                fieldLengths[f]++;
+            });
+        }
+
+        long[] packed = termFieldCounts.toSortedPacked();
+        int[] termIds = new int[packed.length];
+        int[] fieldFrequencies = new int[packed.length * FIELDS.length];
+        int distinctTerms = 0;
+
+        for (long entry : packed) {
+            int termId = TermCounter.keyOf(entry) / FIELDS.length;
+            int f = TermCounter.keyOf(entry) % FIELDS.length;
+
+            if (distinctTerms == 0 || termIds[distinctTerms - 1] != termId) {
+                termIds[distinctTerms++] = termId;
+            }
+            fieldFrequencies[(distinctTerms - 1) * FIELDS.length + f] = TermCounter.countOf(entry);
+        }
+
+        return new IndexedDocument(Arrays.copyOf(termIds, distinctTerms),
+                Arrays.copyOf(fieldFrequencies, distinctTerms * FIELDS.length), fieldLengths, null);
+    }
+
+    private static double[] averageFieldLengths(long[] totalFieldLengths, int documentCount) {
+        double[] averages = new double[FIELDS.length];
+        int totalDocuments = Math.max(documentCount, 1);
+        for (int f = 0; f < FIELDS.length; f++) {
+            averages[f] = (double) totalFieldLengths[f] / totalDocuments;
+        }
+        return averages;
+    }
+
+    // Boosts and k1 are applied per query, so only the version-bound part is cached
+    private QueryTerms cachedQueryTerms(IndexSnapshot current, String queryText) {
+        Cache cache = cacheManager.getCache(CacheConfig.QUERY_VECTORS);
+        if (cache == null || queryText == null || queryText.isBlank()) {
+            return analyzeQuery(current, queryText);
+        }
+        return cache.get(new VersionedCacheKey("bm25f", current.version, queryText),
+                () -> analyzeQuery(current, queryText));
+    }
+
+    private QueryTerms analyzeQuery(IndexSnapshot current, String queryText) {
+        TermCounter queryTermCounts = new TermCounter(16);
+        textAnalyzer.analyze(queryText, (buffer, length) -> {
+            int termId = current.dictionary.lookup(buffer, length);
+            if (termId >= 0) {
+                queryTermCounts.increment(termId);
+            }
+        });
+
+        long[] packed = queryTermCounts.toSortedPacked();
+        int[] termIds = new int[packed.length];
+        float[] termWeights = new float[packed.length];
+        int totalDocuments = current.documents.size();
+
+        for (int i = 0; i < packed.length; i++) {
+            termIds[i] = TermCounter.keyOf(packed[i]);
+            int df = current.documentFrequencies[termIds[i]];
+            double idf = Math.log(1.0 + (totalDocuments - df + 0.5) / (df + 0.5));
+            termWeights[i] = (float) (idf * TermCounter.countOf(packed[i]));
+        }
+
+        return new QueryTerms(termIds, termWeights);
+    }
+
+    private static float scoreDocument(IndexedDocument document, int[] queryTermIds, float[] queryTermWeights,
+                                       float[] boosts, float k1) {
+        int[] docTermIds = document.termIds;
+        float score = 0.0f;
+        int i = 0;
+        int j = 0;
+
+        while (i < queryTermIds.length && j < docTermIds.length) {
+            if (queryTermIds[i] < docTermIds[j]) {
+                i++;
+            } else if (queryTermIds[i] > docTermIds[j]) {
+                j++;
+            } else {
+                // Field-weighted, length-normalized term frequency, then one saturation over all fields
+                float tf = 0.0f;
+                int row = j * FIELDS.length;
+                for (int f = 0; f < FIELDS.length; f++) {
+                    tf += boosts[f] * document.fieldFrequencies[row + f] * document.lengthNorms[f];
+                }
+                score += queryTermWeights[i] * tf / (k1 + tf);
+                i++;
+                j++;
+            }
+        }
+
+        return score;
+    }
+
+    @Override
+    protected String indexName() {
+        return "BM25F";
+    }
+
+    @Override
+    protected IndexBuilder newBuilder(IndexSnapshot base) {
+        return new Bm25fIndexBuilder(base);
+    }
+
+    private final class Bm25fIndexBuilder extends IndexBuilder {
+        private final long[] totalFieldLengths;
+
+        Bm25fIndexBuilder(IndexSnapshot base) {
+            super(base);
+            this.totalFieldLengths = base.totalFieldLengths.clone();
+        }
+
+        @Override
+        void addDocument(Activity activity) {
+            IndexedDocument document = analyzeDocument(activity, this::termId);
+            for (int termId : document.termIds) {
+                countTerm(termId);
+            }
+            for (int f = 0; f < FIELDS.length; f++) {
+                totalFieldLengths[f] += document.fieldLengths[f];
+            }
+
+            // Normalized in build(), against the final average lengths of this batch
+            putDocument(activity.getId(), document);
+        }
+
+        @Override
+        void documentRemoved(IndexedDocument document) {
+            for (int f = 0; f < FIELDS.length; f++) {
+                totalFieldLengths[f] -= document.fieldLengths[f];
+            }
+        }
+
+        // Stored norms carry the average field lengths of the moment they were computed
+        @Override
+        IndexSnapshot build(boolean forceRefresh) {
+            boolean renormalizeAll = refreshDue(forceRefresh);
+
+            double[] averageFieldLengths = averageFieldLengths(totalFieldLengths, documents.size());
+
+            for (Map.Entry<String, IndexedDocument> entry : documents.entrySet()) {
+                IndexedDocument document = entry.getValue();
+                if (renormalizeAll || document.lengthNorms == null) {
+                    entry.setValue(new IndexedDocument(document.termIds, document.fieldFrequencies,
+                            document.fieldLengths, lengthNorms(document.fieldLengths, averageFieldLengths)));
+                }
+            }
+
+            return new IndexSnapshot(version, dictionary, documentFrequencies, documents, totalFieldLengths,
+                    renormalizeAll ? 0 : changesSinceRefresh);
+        }
+    }
+
+    private float[] lengthNorms(int[] fieldLengths, double[] averageFieldLengths) {
+        float[] norms = new float[FIELDS.length];
+        for (Field field : FIELDS) {
+            int f = field.ordinal();
+            if (fieldLengths[f] == 0) {
+                continue;
+            }
+            double b = properties.weightFor(field.key).getB();
+            double relativeLength = averageFieldLengths[f] > 0 ? fieldLengths[f] / averageFieldLengths[f] : 0.0;
+            norms[f] = (float) (1.0 / (1.0 - b + b * relativeLength));
+        }
+        return norms;
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.repository.ActivityRepository;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Keeps this node's in-process views of the catalog (search index, catalog replica) in step with
+// the activities collection, whoever writes to it. Tails the collection's change stream on replica
+// sets and falls back to polling the updatedAt watermark on standalone servers. Every applied change
+// bumps CatalogVersion, so caches keyed on it stop serving results computed before the change.
+// search.sync.mode: auto (change stream, polling if unsupported) | change-stream | polling | off
+@Component
+@Slf4j
+public class CatalogChangeSync {
+
+    // Server error for $changeStream on a standalone mongod
+    private static final int CHANGE_STREAM_UNSUPPORTED = 40573;
+
+    // Errors after which the stream cannot pick up where it left off: the resume point fell out of the
+    // oplog (ChangeStreamHistoryLost, CappedPositionLost) or the token is unusable (ChangeStreamFatalError)
+    private static final Set<Integer> RESUME_POINT_LOST = Set.of(286, 136, 280);
+
+    // Changes applied between resume token writes while the stream is busy
+    private static final int TOKEN_SAVE_INTERVAL = 100;
+
+    // Most events drained from the stream and applied as one update of each view
+    private static final int MAX_BATCH_SIZE = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private ActivityScorer activityScorer;
+
+    @Autowired
+    private CatalogReplica catalogReplica;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private SearchIndexLoader searchIndexLoader;
+
+    @Value("${search.sync.mode:auto}")
+    private String mode;
+
+    // Polling mode: how often the updatedAt watermark is checked
+    @Value("${search.sync.poll-interval:30s}")
+    private Duration pollInterval;
+
+    // Wait before reopening the change stream after an error
+    @Value("${search.sync.retry-delay:10s}")
+    private Duration retryDelay;
+
+    // Change stream resume token, so a restart picks up the changes (including deletes) it missed.
+    // Empty keeps the token in memory only.
+    @Value("${search.sync.resume-token-path:}")
+    private String resumeTokenPath;
+
+    // Same skew allowance as the startup replay
+    @Value("${search.index.replay-overlap:5m}")
+    private Duration replayOverlap;
+
+    private volatile boolean running;
+    private volatile Thread worker;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+
+    // Latest saved resume token, used when the stream is reopened after an error
+    private volatile BsonDocument lastResumeToken;
+
+    // Polling re-reads the overlap window each time; versions already applied are skipped so an idle
+    // catalog does not bump the version on every poll
+    private final Map<String, Date> recentlyApplied = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if ("off".equalsIgnoreCase(mode)) {
+            log.info("Catalog change sync disabled");
+            return;
+        }
+
+        running = true;
+        Thread thread = new Thread(this::run, "catalog-change-sync");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> open = cursor;
+        if (open != null) {
+            try {
+                open.close();
+            } catch (Exception e) {
+                log.debug("Error closing change stream: {}", e.getMessage());
+            }
+        }
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        boolean useChangeStream = !"polling".equalsIgnoreCase(mode);
+
+        while (running) {
+            try {
+                if (useChangeStream) {
+                    tailChangeStream();
+                } else {
+                    pollWatermark();
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == CHANGE_STREAM_UNSUPPORTED && "auto".equalsIgnoreCase(mode)) {
+                    log.info("Change streams are not available on this deployment; polling updatedAt every {}",
+                            pollInterval);
+                    useChangeStream = false;
+                } else if (running) {
+                    log.warn("Catalog change sync failed, retrying in {}: {}", retryDelay, e.getMessage());
+                    sleep(retryDelay);
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("Catalog change sync failed, retrying in {}: {}", retryDelay, e.getMessage());
+                    sleep(retryDelay);
+                }
+            }
+        }
+    }
+
+    private void tailChangeStream() {
+        BsonDocument resumeToken = readResumeToken();
+        Instant checkpoint = searchIndexLoader.getCheckpoint();
+
+        ChangeStreamIterable<Document> changeStream = mongoTemplate.getCollection("activities")
+                .watch(List.of(Aggregates.match(Filters.in("operationType",
+                        "insert", "update", "replace", "delete", "drop", "rename", "invalidate"))))
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (resumeToken != null) {
+            changeStream = changeStream.resumeAfter(resumeToken);
+        } else if (checkpoint != null) {
+            // No token yet: start where the startup load left off, so nothing in between is missed
+            changeStream = changeStream.startAtOperationTime(
+                    new BsonTimestamp((int) checkpoint.minus(replayOverlap).getEpochSecond(), 0));
+        }
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> opened = changeStream.cursor()) {
+            cursor = opened;
+            log.info("Tailing activities change stream{}", resumeToken != null ? " from saved resume token" : "");
+
+            BsonDocument savedToken = resumeToken;
+            int unsaved = 0;
+            while (running) {
+                Instant caughtUpAt = Instant.now();
+
+                // Whatever the stream has ready, up to MAX_BATCH_SIZE events, is applied together:
+                // one index snapshot, one replica update and one version bump per batch
+                Map<String, Activity> batch = new LinkedHashMap<>();
+                int events = 0;
+                boolean drained = false;
+                while (events < MAX_BATCH_SIZE) {
+                    ChangeStreamDocument<Document> change = opened.tryNext();
+                    if (change == null) {
+                        drained = true;
+                        break;
+                    }
+                    if (!collect(change, batch)) {
+                        return;
+                    }
+                    events++;
+                }
+                applyBatch(batch);
+
+                // Persisted whenever the stream is idle, and every TOKEN_SAVE_INTERVAL changes during bursts
+                unsaved += events;
+                BsonDocument token = opened.getResumeToken();
+                if (token != null && !token.equals(savedToken) && (drained || unsaved >= TOKEN_SAVE_INTERVAL)) {
+                    writeResumeToken(token);
+                    savedToken = token;
+                    unsaved = 0;
+                }
+
+                if (drained) {
+                    // Nothing pending: everything up to the first call is applied
+                    searchIndexLoader.advanceCheckpoint(caughtUpAt);
+                }
+            }
+        } catch (MongoCommandException e) {
+            // Resume point older than the oplog window: reload everything and start over from now.
+            // Anything else (network, elections, timeouts) is retried from the last token.
+            if (RESUME_POINT_LOST.contains(e.getErrorCode())) {
+                log.warn("Could not resume activities change stream ({}); reloading the catalog", e.getMessage());
+                deleteResumeToken();
+                reloadAll();
+                return;
+            }
+            throw e;
+        } finally {
+            cursor = null;
+        }
+    }
+
+    // Records the change in the batch, keyed by activity id so only its latest state is applied
+    // (null once deleted). False when the stream has ended (collection dropped or renamed): the
+    // catalog is reloaded, which covers the rest of the batch, and the stream has to be reopened.
+    private boolean collect(ChangeStreamDocument<Document> change, Map<String, Activity> batch) {
+        switch (change.getOperationType()) {
+            case INSERT, UPDATE, REPLACE -> {
+                Document fullDocument = change.getFullDocument();
+                if (fullDocument == null) {
+                    // Deleted again before the lookup ran
+                    recordRemoval(change.getDocumentKey(), batch);
+                } else {
+                    Activity activity = mongoTemplate.getConverter().read(Activity.class, fullDocument);
+                    batch.put(activity.getId(), activity);
+                }
+                return true;
+            }
+            case DELETE -> {
+                recordRemoval(change.getDocumentKey(), batch);
+                return true;
+            }
+            case DROP, RENAME, INVALIDATE -> {
+                log.warn("Activities collection was {}; reloading the catalog", change.getOperationType());
+                deleteResumeToken();
+                reloadAll();
+                return false;
+            }
+            default -> {
+                return true;
+            }
+        }
+    }
+
+    private static void recordRemoval(BsonDocument documentKey, Map<String, Activity> batch) {
+        if (documentKey == null || !documentKey.containsKey("_id")) {
+            return;
+        }
+        BsonValue id = documentKey.get("_id");
+        String activityId = id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+        batch.put(activityId, null);
+    }
+
+    private void applyBatch(Map<String, Activity> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Activity> changed = new ArrayList<>();
+        List<String> removedIds = new ArrayList<>();
+        batch.forEach((activityId, activity) -> {
+            if (activity != null) {
+                changed.add(activity);
+            } else {
+                removedIds.add(activityId);
+            }
+        });
+        applyChanges(changed, removedIds);
+    }
+
+    private void pollWatermark() {
+        Instant watermark = searchIndexLoader.getCheckpoint();
+        if (watermark == null) {
+            watermark = Instant.now();
+        }
+
+        while (running) {
+            sleep(pollInterval);
+            if (!running) {
+                return;
+            }
+
+            Instant pollStartedAt = Instant.now();
+            List<Activity> changed = activityRepository.findByUpdatedAtAfter(Date.from(watermark.minus(replayOverlap)));
+
+            Date horizon = Date.from(pollStartedAt.minus(replayOverlap).minus(pollInterval));
+            recentlyApplied.values().removeIf(updatedAt -> updatedAt.before(horizon));
+
+            List<Activity> fresh = new ArrayList<>();
+            for (Activity activity : changed) {
+                Date updatedAt = activity.getUpdatedAt();
+                if (updatedAt == null || !updatedAt.equals(recentlyApplied.get(activity.getId()))) {
+                    fresh.add(activity);
+                }
+                if (updatedAt != null) {
+                    recentlyApplied.put(activity.getId(), updatedAt);
+                }
+            }
+
+            if (!fresh.isEmpty()) {
+                applyChanges(fresh, List.of());
+                log.info("Applied {} catalog changes from polling", fresh.size());
+            }
+
+            watermark = pollStartedAt;
+            searchIndexLoader.advanceCheckpoint(pollStartedAt);
+        }
+    }
+
+    // Inactive or private activities are dropped by both views
+    private void applyChanges(List<Activity> changed, List<String> removedIds) {
+        activityScorer.updateIndex(changed, removedIds);
+        catalogReplica.update(changed, removedIds);
+        catalogVersion.bump();
+    }
+
+    private void reloadAll() {
+        activityScorer.rebuildIndex(activityRepository.findByIsActiveAndIsPublic(true, true));
+        if (catalogReplica.isEnabled()) {
+            catalogReplica.load();
+        }
+        catalogVersion.bump();
+        searchIndexLoader.advanceCheckpoint(Instant.now());
+    }
+
+    private BsonDocument readResumeToken() {
+        if (lastResumeToken != null || resumeTokenPath.isBlank()) {
+            return lastResumeToken;
+        }
+        Path path = Path.of(resumeTokenPath);
+        try {
+            return Files.exists(path) ? BsonDocument.parse(Files.readString(path, StandardCharsets.UTF_8)) : null;
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable resume token {}: {}", resumeTokenPath, e.getMessage());
+            return null;
+        }
+    }
+
+    // Written to a temp file and moved into place, so a crash never leaves half a token
+    private void writeResumeToken(BsonDocument token) {
+        lastResumeToken = token;
+        if (resumeTokenPath.isBlank()) {
+            return;
+        }
+        try {
+            Path path = Path.of(resumeTokenPath).toAbsolutePath();
+            Files.createDirectories(path.getParent());
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.writeString(temp, token.toJson(), StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write resume token to {}: {}", resumeTokenPath, e.getMessage());
+        }
+    }
+
+    private void deleteResumeToken() {
+        lastResumeToken = null;
+        if (resumeTokenPath.isBlank()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Path.of(resumeTokenPath));
+        } catch (IOException e) {
+            log.warn("Could not delete resume token {}: {}", resumeTokenPath, e.getMessage());
+        }
+    }
+
+    private void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,551 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.filter.ActivityFilterDto;
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.model.ActivitySummary;
+import com.example.learnverse.activity.model.FilterPage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+// Optional in-process read model of the active, public catalog that answers /filter without Mongo
+// (search.replica.enabled). Activities get dense ordinals; every filterable value has a posting
+// bitmap of the ordinals holding it and every numeric field is a column of ordinals sorted by
+// value. A filter is then a few BitSet ANDs/ORs plus binary searches, and a page is a walk down
+// the sort column. Mongo stays the system of record: the replica is loaded at startup, follows
+// this node's writes, and declines (returns null for) anything it cannot answer exactly.
+// Updates are incremental: changed activities get fresh ordinals at the end and their old ones are
+// masked out of a live bitmap; the snapshot is rebuilt densely once enough ordinals are dead.
+@Component
+@Slf4j
+public class CatalogReplica {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${search.replica.enabled:false}")
+    private boolean enabled;
+
+    // Filter-only fields loaded on top of the summary
+    private static final String[] FILTER_FIELDS = {"isActive", "isPublic", "demoDetails.freeTrial"};
+
+    // Posting list dimensions; list filters match any of their values, flags are keyed "true"/"false"
+    private static final String SUBJECT = "subject";
+    private static final String ACTIVITY_TYPE = "activityType";
+    private static final String MODE = "mode";
+    private static final String DIFFICULTY = "difficulty";
+    private static final String CITY = "city";
+    private static final String STATE = "state";
+    private static final String PRICE_TYPE = "priceType";
+    private static final String SESSION_DAYS = "sessionDays";
+    private static final String DEMO_AVAILABLE = "demoAvailable";
+    private static final String FEATURED = "featured";
+    private static final String FREE_TRIAL = "freeTrial";
+    private static final String INSTALLMENT_AVAILABLE = "installmentAvailable";
+    private static final String FLEXIBLE_SCHEDULING = "flexibleScheduling";
+    private static final String SELF_PACED = "selfPaced";
+
+    // Numeric columns, named by the Mongo path resolveSort produces so sorts map onto them directly
+    private static final Map<String, Function<ActivitySummary, Number>> COLUMNS = Map.of(
+            "pricing.price", summary -> summary.getPricing() != null ? summary.getPricing().getPrice() : null,
+            "reviews.averageRating", summary -> summary.getReviews() != null ? summary.getReviews().getAverageRating() : null,
+            "duration.totalDuration", summary -> summary.getDuration() != null ? summary.getDuration().getTotalDuration() : null,
+            "enrollmentInfo.enrolledCount", summary -> summary.getEnrollmentInfo() != null ? summary.getEnrollmentInfo().getEnrolledCount() : null,
+            "createdAt", summary -> summary.getCreatedAt() != null ? summary.getCreatedAt().getTime() : null,
+            "suitableAgeGroup.minAge", summary -> summary.getSuitableAgeGroup() != null ? summary.getSuitableAgeGroup().getMinAge() : null,
+            "suitableAgeGroup.maxAge", summary -> summary.getSuitableAgeGroup() != null ? summary.getSuitableAgeGroup().getMaxAge() : null);
+
+    // Rebuild densely once dead ordinals exceed this share of the live ones (and COMPACT_MIN_DEAD)
+    private static final double COMPACT_RATIO = 0.25;
+    private static final int COMPACT_MIN_DEAD = 1024;
+
+    // Null until loaded; each update publishes a new one, so readers never lock
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    private final Object writeLock = new Object();
+
+    // Writer-side state, guarded by writeLock: every replicated activity and its ordinal in the
+    // current snapshot
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+
+    private record Entry(ActivitySummary summary, boolean freeTrial) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        Query query = new Query(Criteria.where("isActive").is(true).and("isPublic").is(true));
+        query.fields().include(ActivitySummary.FIELDS).include(FILTER_FIELDS);
+
+        Map<String, Entry> loaded = new HashMap<>();
+        for (Activity activity : mongoTemplate.find(query, Activity.class)) {
+            loaded.put(activity.getId(), toEntry(activity));
+        }
+
+        synchronized (writeLock) {
+            entries.clear();
+            entries.putAll(loaded);
+            rebuild();
+        }
+        log.info("Catalog replica loaded with {} activities", loaded.size());
+    }
+
+    public void upsertAll(Collection<Activity> activities) {
+        update(activities, List.of());
+    }
+
+    public void upsert(Activity activity) {
+        update(List.of(activity), List.of());
+    }
+
+    public void remove(String activityId) {
+        update(List.of(), List.of(activityId));
+    }
+
+    // Adds or replaces the changed activities and drops the removed ids, as one new snapshot; changed
+    // activities that are no longer active and public are dropped too. Costs the touched postings
+    // and a short re-sort per column, not a rebuild.
+    public void update(Collection<Activity> changed, Collection<String> removedIds) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot.get();
+            if (current == null || (changed.isEmpty() && removedIds.isEmpty())) {
+                return;
+            }
+
+            // Latest state per id in this batch; null drops it
+            Map<String, Entry> touched = new LinkedHashMap<>();
+            for (String activityId : removedIds) {
+                touched.put(activityId, null);
+            }
+            for (Activity activity : changed) {
+                boolean replicated = Boolean.TRUE.equals(activity.getIsActive())
+                        && Boolean.TRUE.equals(activity.getIsPublic());
+                touched.put(activity.getId(), replicated ? toEntry(activity) : null);
+            }
+
+            List<Integer> deadOrdinals = new ArrayList<>();
+            List<Entry> added = new ArrayList<>();
+            touched.forEach((activityId, entry) -> {
+                Integer ordinal = ordinals.remove(activityId);
+                if (ordinal != null) {
+                    deadOrdinals.add(ordinal);
+                }
+                if (entry != null) {
+                    entries.put(activityId, entry);
+                    added.add(entry);
+                } else {
+                    entries.remove(activityId);
+                }
+            });
+            if (deadOrdinals.isEmpty() && added.isEmpty()) {
+                return;
+            }
+
+            int dead = current.dead + deadOrdinals.size();
+            if (dead > Math.max(COMPACT_MIN_DEAD, entries.size() * COMPACT_RATIO)) {
+                rebuild();
+                return;
+            }
+
+            Snapshot next = current.apply(deadOrdinals, added);
+            for (int i = 0; i < added.size(); i++) {
+                ordinals.put(added.get(i).summary().getId(), current.summaries.length + i);
+            }
+            snapshot.set(next);
+        }
+    }
+
+    // Dense ordinals in id order, no dead ones; only called while holding writeLock
+    private void rebuild() {
+        Snapshot built = Snapshot.build(entries);
+        ordinals.clear();
+        for (int ordinal = 0; ordinal < built.summaries.length; ordinal++) {
+            ordinals.put(built.summaries[ordinal].getId(), ordinal);
+        }
+        snapshot.set(built);
+    }
+
+    // Same results as ActivityService's Mongo filter query, or null when the replica is not loaded or the
+    // request needs Mongo: text search, or a sort on a field that has no column
+    public FilterPage<ActivitySummary> filter(ActivityFilterDto filterDto, Pageable pageable) {
+        Snapshot current = snapshot.get();
+        if (current == null || StringUtils.hasText(filterDto.getSearchQuery())) {
+            return null;
+        }
+
+        Sort.Order order = pageable.getSort().iterator().next();
+        Column sortColumn = current.columns.get(order.getProperty());
+        if (sortColumn == null) {
+            return null;
+        }
+
+        BitSet matches = current.evaluate(filterDto);
+        long total = matches.cardinality();
+
+        List<ActivitySummary> content = new ArrayList<>(pageable.getPageSize());
+        long[] skip = {pageable.getOffset()};
+        sortColumn.walk(order.isAscending(), ordinal -> {
+            if (matches.get(ordinal)) {
+                if (skip[0] > 0) {
+                    skip[0]--;
+                } else {
+                    content.add(current.summaries[ordinal]);
+                }
+            }
+            return content.size() < pageable.getPageSize();
+        });
+
+        return new FilterPage<>(content, pageable, total, false);
+    }
+
+    private static Entry toEntry(Activity activity) {
+        boolean freeTrial = (activity.getPricing() != null && activity.getPricing().getFreeTrialDays() != null
+                && activity.getPricing().getFreeTrialDays() > 0)
+                || (activity.getDemoDetails() != null && Boolean.TRUE.equals(activity.getDemoDetails().getFreeTrial()));
+        return new Entry(ActivitySummary.from(activity), freeTrial);
+    }
+
+    // Ordinals sorted by value with missing values first (Mongo's ascending order for null).
+    // values[i] belongs to order[i]; ranges are binary searches over the present part.
+    private record SortedColumn(int[] order, double[] values, int missing) {
+
+        static final SortedColumn EMPTY = new SortedColumn(new int[0], new double[0], 0);
+
+        // ordinals ascending; equal values keep that order
+        static SortedColumn build(int[] ordinals, ActivitySummary[] summaries,
+                                  Function<ActivitySummary, Number> extractor) {
+            Integer[] positions = new Integer[ordinals.length];
+            double[] raw = new double[ordinals.length];
+            int missing = 0;
+            for (int i = 0; i < ordinals.length; i++) {
+                positions[i] = i;
+                Number value = extractor.apply(summaries[ordinals[i]]);
+                raw[i] = value != null ? value.doubleValue() : Double.NaN;
+                if (value == null) {
+                    missing++;
+                }
+            }
+
+            // Stable sort, so equal values keep a deterministic order
+            Arrays.sort(positions, (a, b) -> {
+                boolean aMissing = Double.isNaN(raw[a]);
+                boolean bMissing = Double.isNaN(raw[b]);
+                if (aMissing || bMissing) {
+                    return Boolean.compare(!aMissing, !bMissing);
+                }
+                return Double.compare(raw[a], raw[b]);
+            });
+
+            int[] order = new int[positions.length];
+            double[] values = new double[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                order[i] = ordinals[positions[i]];
+                values[i] = raw[positions[i]];
+            }
+            return new SortedColumn(order, values, missing);
+        }
+
+        // Sort key of position i; missing values sort below every present one
+        double key(int i) {
+            return i < missing ? Double.NEGATIVE_INFINITY : values[i];
+        }
+
+        // Ordinals with lower <= value <= upper; either bound may be open, missing values never match
+        void range(Double lower, Double upper, BitSet result) {
+            int from = lower != null ? firstIndex(lower, false) : missing;
+            int to = upper != null ? firstIndex(upper, true) : order.length;
+            for (int i = from; i < to; i++) {
+                result.set(order[i]);
+            }
+        }
+
+        // First present index whose value is >= bound (> bound when strict)
+        private int firstIndex(double bound, boolean strict) {
+            int low = missing;
+            int high = order.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < bound || (strict && values[mid] == bound)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    // One numeric field: the run sorted when the snapshot was built, plus a short run of the ordinals
+    // added since. Updates only re-sort the short run; it is folded into the base once it grows past
+    // a sixteenth of it. Either run may still list dead ordinals, which the live bitmap masks.
+    private record Column(SortedColumn base, SortedColumn recent) {
+
+        private static final int RECENT_MIN = 256;
+
+        Column withAdded(int[] addedOrdinals, ActivitySummary[] summaries, BitSet live,
+                         Function<ActivitySummary, Number> extractor) {
+            if (recent.order.length + addedOrdinals.length > Math.max(RECENT_MIN, base.order.length / 16)) {
+                return new Column(SortedColumn.build(live.stream().toArray(), summaries, extractor), SortedColumn.EMPTY);
+            }
+
+            int[] recentOrdinals = Arrays.stream(recent.order).filter(live::get).sorted().toArray();
+            int[] merged = Arrays.copyOf(recentOrdinals, recentOrdinals.length + addedOrdinals.length);
+            System.arraycopy(addedOrdinals, 0, merged, recentOrdinals.length, addedOrdinals.length);
+            return new Column(base, SortedColumn.build(merged, summaries, extractor));
+        }
+
+        BitSet range(Double lower, Double upper) {
+            BitSet result = new BitSet();
+            base.range(lower, upper, result);
+            recent.range(lower, upper, result);
+            return result;
+        }
+
+        // Visits ordinals in value order, merging both runs (missing first when ascending, last when
+        // descending), until the visitor returns false
+        void walk(boolean ascending, IntPredicate visitor) {
+            int[] baseOrder = base.order;
+            int[] recentOrder = recent.order;
+            if (ascending) {
+                int i = 0;
+                int j = 0;
+                while (i < baseOrder.length || j < recentOrder.length) {
+                    boolean fromBase = j >= recentOrder.length
+                            || (i < baseOrder.length && base.key(i) <= recent.key(j));
+                    if (!visitor.test(fromBase ? baseOrder[i++] : recentOrder[j++])) {
+                        return;
+                    }
+                }
+            } else {
+                int i = baseOrder.length - 1;
+                int j = recentOrder.length - 1;
+                while (i >= 0 || j >= 0) {
+                    boolean fromBase = j < 0 || (i >= 0 && base.key(i) > recent.key(j));
+                    if (!visitor.test(fromBase ? baseOrder[i--] : recentOrder[j--])) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        // Indexed by ordinal; null for dead ordinals
+        private final ActivitySummary[] summaries;
+        private final BitSet live;
+        private final int dead;
+        private final Map<String, Map<String, BitSet>> postings;
+        private final Map<String, Column> columns = new HashMap<>();
+
+        private Snapshot(ActivitySummary[] summaries, BitSet live, int dead, Map<String, Map<String, BitSet>> postings) {
+            this.summaries = summaries;
+            this.live = live;
+            this.dead = dead;
+            this.postings = postings;
+        }
+
+        static Snapshot build(Map<String, Entry> entries) {
+            List<String> ids = new ArrayList<>(entries.keySet());
+            Collections.sort(ids);
+
+            ActivitySummary[] summaries = new ActivitySummary[ids.size()];
+            BitSet live = new BitSet(ids.size());
+            live.set(0, ids.size());
+            Snapshot snapshot = new Snapshot(summaries, live, 0, new HashMap<>());
+
+            Set<BitSet> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int ordinal = 0; ordinal < ids.size(); ordinal++) {
+                Entry entry = entries.get(ids.get(ordinal));
+                summaries[ordinal] = entry.summary();
+                snapshot.postAll(entry, ordinal, owned);
+            }
+
+            int[] ordinals = live.stream().toArray();
+            COLUMNS.forEach((path, extractor) -> snapshot.columns.put(path,
+                    new Column(SortedColumn.build(ordinals, summaries, extractor), SortedColumn.EMPTY)));
+            return snapshot;
+        }
+
+        // The next snapshot: dead ordinals are cleared from the live bitmap, added entries take new
+        // ordinals from summaries.length on. Postings this snapshot shares are copied before a change.
+        Snapshot apply(List<Integer> deadOrdinals, List<Entry> added) {
+            ActivitySummary[] nextSummaries = Arrays.copyOf(summaries, summaries.length + added.size());
+            BitSet nextLive = (BitSet) live.clone();
+            for (int ordinal : deadOrdinals) {
+                nextSummaries[ordinal] = null;
+                nextLive.clear(ordinal);
+            }
+
+            Map<String, Map<String, BitSet>> nextPostings = new HashMap<>();
+            postings.forEach((dimension, byValue) -> nextPostings.put(dimension, new HashMap<>(byValue)));
+            Snapshot next = new Snapshot(nextSummaries, nextLive, dead + deadOrdinals.size(), nextPostings);
+
+            Set<BitSet> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+            int[] addedOrdinals = new int[added.size()];
+            for (int i = 0; i < added.size(); i++) {
+                int ordinal = summaries.length + i;
+                addedOrdinals[i] = ordinal;
+                nextSummaries[ordinal] = added.get(i).summary();
+                nextLive.set(ordinal);
+                next.postAll(added.get(i), ordinal, owned);
+            }
+
+            columns.forEach((path, column) -> next.columns.put(path,
+                    column.withAdded(addedOrdinals, nextSummaries, nextLive, COLUMNS.get(path))));
+            return next;
+        }
+
+        private void postAll(Entry entry, int ordinal, Set<BitSet> owned) {
+            ActivitySummary summary = entry.summary();
+            post(SUBJECT, summary.getSubject(), ordinal, owned);
+            post(ACTIVITY_TYPE, summary.getActivityType(), ordinal, owned);
+            post(MODE, summary.getMode(), ordinal, owned);
+            post(DIFFICULTY, summary.getDifficulty(), ordinal, owned);
+            post(DEMO_AVAILABLE, summary.getDemoAvailable(), ordinal, owned);
+            post(FEATURED, summary.getFeatured(), ordinal, owned);
+            if (entry.freeTrial()) {
+                post(FREE_TRIAL, true, ordinal, owned);
+            }
+            if (summary.getLocation() != null) {
+                post(CITY, summary.getLocation().getCity(), ordinal, owned);
+                post(STATE, summary.getLocation().getState(), ordinal, owned);
+            }
+            if (summary.getPricing() != null) {
+                post(PRICE_TYPE, summary.getPricing().getPriceType(), ordinal, owned);
+                post(INSTALLMENT_AVAILABLE, summary.getPricing().getInstallmentAvailable(), ordinal, owned);
+            }
+            if (summary.getSchedule() != null) {
+                if (summary.getSchedule().getSessionDays() != null) {
+                    for (String day : summary.getSchedule().getSessionDays()) {
+                        post(SESSION_DAYS, day, ordinal, owned);
+                    }
+                }
+                post(FLEXIBLE_SCHEDULING, summary.getSchedule().getFlexibleScheduling(), ordinal, owned);
+                post(SELF_PACED, summary.getSchedule().getSelfPaced(), ordinal, owned);
+            }
+        }
+
+        // owned holds the bitmaps created for this snapshot; any other one is still shared with the
+        // previous snapshot and is copied before it is changed
+        private void post(String dimension, Object value, int ordinal, Set<BitSet> owned) {
+            if (value == null) {
+                return;
+            }
+            Map<String, BitSet> byValue = postings.computeIfAbsent(dimension, key -> new HashMap<>());
+            BitSet posting = byValue.get(value.toString());
+            if (posting == null || !owned.contains(posting)) {
+                posting = posting != null ? (BitSet) posting.clone() : new BitSet(summaries.length);
+                byValue.put(value.toString(), posting);
+                owned.add(posting);
+            }
+            posting.set(ordinal);
+        }
+
+        // Mirrors ActivityService.buildFilterQuery; every condition narrows the running intersection
+        BitSet evaluate(ActivityFilterDto filterDto) {
+            BitSet result = (BitSet) live.clone();
+
+            anyOf(result, SUBJECT, filterDto.getSubjects());
+            anyOf(result, ACTIVITY_TYPE, filterDto.getActivityTypes());
+            anyOf(result, MODE, filterDto.getModes());
+            anyOf(result, DIFFICULTY, filterDto.getDifficulties());
+            anyOf(result, CITY, filterDto.getCities());
+            anyOf(result, STATE, filterDto.getStates());
+            anyOf(result, PRICE_TYPE, filterDto.getPriceTypes());
+            anyOf(result, SESSION_DAYS, filterDto.getSessionDays());
+
+            if (filterDto.getMinPrice() != null || filterDto.getMaxPrice() != null) {
+                result.and(columns.get("pricing.price").range(toDouble(filterDto.getMinPrice()),
+                        toDouble(filterDto.getMaxPrice())));
+            }
+
+            // An activity's age group has to overlap the requested one
+            if (filterDto.getMaxAge() != null) {
+                result.and(columns.get("suitableAgeGroup.minAge").range(null, toDouble(filterDto.getMaxAge())));
+            }
+            if (filterDto.getMinAge() != null) {
+                result.and(columns.get("suitableAgeGroup.maxAge").range(toDouble(filterDto.getMinAge()), null));
+            }
+
+            if (filterDto.getMinDuration() != null || filterDto.getMaxDuration() != null) {
+                result.and(columns.get("duration.totalDuration").range(toDouble(filterDto.getMinDuration()),
+                        toDouble(filterDto.getMaxDuration())));
+            }
+
+            if (filterDto.getMinRating() != null) {
+                result.and(columns.get("reviews.averageRating").range(filterDto.getMinRating(), null));
+            }
+
+            flag(result, DEMO_AVAILABLE, filterDto.getDemoAvailable());
+            flag(result, FEATURED, filterDto.getFeatured());
+            if (Boolean.TRUE.equals(filterDto.getFreeTrialAvailable())) {
+                flag(result, FREE_TRIAL, true);
+            }
+            flag(result, INSTALLMENT_AVAILABLE, filterDto.getInstallmentAvailable());
+            flag(result, FLEXIBLE_SCHEDULING, filterDto.getFlexibleScheduling());
+            flag(result, SELF_PACED, filterDto.getSelfPaced());
+
+            return result;
+        }
+
+        // Values are normalized like addNormalizedIn; a list with no usable value does not filter
+        private void anyOf(BitSet result, String dimension, List<String> values) {
+            if (values == null) {
+                return;
+            }
+
+            Map<String, BitSet> byValue = postings.getOrDefault(dimension, Map.of());
+            BitSet union = new BitSet(summaries.length);
+            boolean filtered = false;
+            for (String value : values) {
+                if (value == null || value.trim().isEmpty()) {
+                    continue;
+                }
+                filtered = true;
+                BitSet posting = byValue.get(value.toLowerCase().trim());
+                if (posting != null) {
+                    union.or(posting);
+                }
+            }
+
+            if (filtered) {
+                result.and(union);
+            }
+        }
+
+        private void flag(BitSet result, String dimension, Boolean value) {
+            if (value == null) {
+                return;
+            }
+            BitSet posting = postings.getOrDefault(dimension, Map.of()).get(value.toString());
+            if (posting != null) {
+                result.and(posting);
+            } else {
+                result.clear();
+            }
+        }
+
+        private static Double toDouble(Integer value) {
+            return value != null ? value.doubleValue() : null;
+        }
+    }
+}
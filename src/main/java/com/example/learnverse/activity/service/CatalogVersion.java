@@ -0,0 +1,32 @@
+package com.example.learnverse.activity.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Monotonic version of the activity catalog as seen by this node. Bumped on every activity
+// write and index (re)load; anything derived from the catalog keys its cache entries on it,
+// so a bump makes them unreachable without explicit eviction.
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    // Distinguishes this node's (and this run's) counter from every other one
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+
+    public long current() {
+        return version.get();
+    }
+
+    public long bump() {
+        return version.incrementAndGet();
+    }
+
+    // Version that is safe to hand to clients: counters restart at 0 and differ between nodes,
+    // so the same number on another node (or after a restart) never means the same catalog
+    public String tag() {
+        return epoch + "." + version.get();
+    }
+}
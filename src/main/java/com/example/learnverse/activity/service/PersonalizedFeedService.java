@@ -0,0 +1,235 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.auth.service.UserService;
+import com.example.learnverse.auth.user.UserInterestsChangedEvent;
+import com.example.learnverse.auth.user.UserProfile;
+import com.example.learnverse.config.CacheConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Materialized /my-feed. Each user's feed is a ranked list of activity ids, computed from the
+// activities matching their interests and scored by interest overlap, rating and recency, then kept
+// in the personal-feeds cache. Requests only filter and slice that list. When the catalog version moves, the
+// current list is still served while a background refresh recomputes it; an interest change
+// triggers a refresh right away.
+@Service
+@Slf4j
+public class PersonalizedFeedService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // Ranked ids kept per user; the feed does not page past this
+    @Value("${feed.max-size:500}")
+    private int maxFeedSize;
+
+    // Newest matching activities scored per refresh
+    @Value("${feed.candidate-limit:5000}")
+    private int candidateLimit;
+
+    @Value("${feed.ranking.interest-weight:0.6}")
+    private double interestWeight;
+
+    @Value("${feed.ranking.rating-weight:0.25}")
+    private double ratingWeight;
+
+    @Value("${feed.ranking.recency-weight:0.15}")
+    private double recencyWeight;
+
+    // Age at which the recency component has dropped to half
+    @Value("${feed.ranking.recency-half-life:30d}")
+    private Duration recencyHalfLife;
+
+    // Fields the ranking reads; the page itself is loaded as summaries by id
+    private static final String[] RANKING_FIELDS = {"subject", "tags", "reviews.averageRating", "createdAt"};
+
+    // Users with a refresh queued or running, so bursts of requests schedule it once
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1000), runnable -> {
+                Thread thread = new Thread(runnable, "feed-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private record MaterializedFeed(long catalogVersion, List<String> interests, List<String> activityIds) {
+    }
+
+    // The user's ranked feed, best first. Ids are as of the catalog version the feed was built at,
+    // so callers drop the ones deactivated, made private or deleted since.
+    public List<String> getFeed(String userId) {
+        UserProfile profile = userService.getUserProfile(userId);
+        List<String> interests = normalizeInterests(profile.interests());
+        if (interests.isEmpty()) {
+            throw new RuntimeException("User must add interests first to see personalized activities");
+        }
+
+        Cache cache = cacheManager.getCache(CacheConfig.PERSONAL_FEEDS);
+        MaterializedFeed feed = cache != null ? cache.get(userId, MaterializedFeed.class) : null;
+        if (feed == null || !feed.interests().equals(interests)) {
+            // First visit, or the interests changed and the refresh has not landed yet
+            feed = materialize(userId, interests);
+        } else if (feed.catalogVersion() != catalogVersion.current()) {
+            scheduleRefresh(userId, interests);
+        }
+
+        return feed.activityIds();
+    }
+
+    // The user's interests and the catalog version their cached feed was built at. Lets /my-feed
+    // answer conditional requests without slicing the feed; a stale feed is still queued for refresh
+    // here, since a 304 never reaches getFeed.
+    public List<Object> getFeedSignature(String userId) {
+        List<String> interests = normalizeInterests(userService.getUserProfile(userId).interests());
+
+        Cache cache = cacheManager.getCache(CacheConfig.PERSONAL_FEEDS);
+        MaterializedFeed feed = cache != null ? cache.get(userId, MaterializedFeed.class) : null;
+        if (feed == null || !feed.interests().equals(interests)) {
+            return Arrays.asList(interests, null);
+        }
+        if (feed.catalogVersion() != catalogVersion.current()) {
+            scheduleRefresh(userId, interests);
+        }
+        return Arrays.asList(interests, feed.catalogVersion());
+    }
+
+    @EventListener
+    public void onInterestsChanged(UserInterestsChangedEvent event) {
+        scheduleRefresh(event.userId(), normalizeInterests(event.interests()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private void scheduleRefresh(String userId, List<String> interests) {
+        if (interests.isEmpty() || !refreshing.add(userId)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    materialize(userId, interests);
+                } catch (Exception e) {
+                    log.warn("Feed refresh failed for user {}: {}", userId, e.getMessage());
+                } finally {
+                    refreshing.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue full: the stale feed keeps being served and the next request tries again
+            refreshing.remove(userId);
+        }
+    }
+
+    private MaterializedFeed materialize(String userId, List<String> interests) {
+        // Read before querying, so a catalog write during the refresh leaves the feed marked stale
+        long version = catalogVersion.current();
+
+        // Interests, subjects and tags are all stored lowercased and trimmed, so $in equality
+        // matches them and each $or branch can use its index (idx_subject_tags, idx_tags)
+        Query query = new Query(new Criteria().andOperator(
+                new Criteria().orOperator(
+                        Criteria.where("subject").in(interests),
+                        Criteria.where("tags").in(interests)),
+                Criteria.where("isActive").is(true),
+                Criteria.where("isPublic").is(true)));
+        query.with(Sort.by(Sort.Direction.DESC, "createdAt"));
+        query.limit(candidateLimit);
+        query.fields().include(RANKING_FIELDS);
+
+        List<Activity> candidates = mongoTemplate.find(query, Activity.class);
+
+        Set<String> interestSet = new HashSet<>(interests);
+        long now = System.currentTimeMillis();
+        TopKCollector top = new TopKCollector(maxFeedSize);
+        for (int i = 0; i < candidates.size(); i++) {
+            top.collect(i, (float) score(candidates.get(i), interestSet, now));
+        }
+
+        List<String> ranked = new ArrayList<>(top.size());
+        for (int position : top.topPositions()) {
+            ranked.add(candidates.get(position).getId());
+        }
+
+        MaterializedFeed feed = new MaterializedFeed(version, interests, List.copyOf(ranked));
+        Cache cache = cacheManager.getCache(CacheConfig.PERSONAL_FEEDS);
+        if (cache != null) {
+            cache.put(userId, feed);
+        }
+
+        log.info("Materialized feed for user {}: {} of {} matching activities", userId,
+                feed.activityIds().size(), candidates.size());
+        return feed;
+    }
+
+    // Weighted sum of three 0..1 components: the share of the user's interests the activity covers
+    // (subject or tags), its average rating out of 5, and recency decaying by half every half-life
+    private double score(Activity activity, Set<String> interests, long now) {
+        Set<String> matched = new HashSet<>();
+        if (activity.getSubject() != null && interests.contains(activity.getSubject())) {
+            matched.add(activity.getSubject());
+        }
+        if (activity.getTags() != null) {
+            for (String tag : activity.getTags()) {
+                if (interests.contains(tag)) {
+                    matched.add(tag);
+                }
+            }
+        }
+        double overlap = (double) matched.size() / interests.size();
+
+        Double averageRating = activity.getReviews() != null ? activity.getReviews().getAverageRating() : null;
+        double rating = averageRating != null ? Math.min(averageRating / 5.0, 1.0) : 0;
+
+        double recency = 0;
+        if (activity.getCreatedAt() != null) {
+            double age = Math.max(now - activity.getCreatedAt().getTime(), 0);
+            recency = Math.pow(0.5, age / recencyHalfLife.toMillis());
+        }
+
+        return interestWeight * overlap + ratingWeight * rating + recencyWeight * recency;
+    }
+
+    private static List<String> normalizeInterests(List<String> interests) {
+        if (interests == null) {
+            return List.of();
+        }
+        return interests.stream()
+                .filter(interest -> interest != null && !interest.isBlank())
+                .map(interest -> interest.toLowerCase().trim())
+                .distinct()
+                .sorted()
+                .toList();
+    }
+}
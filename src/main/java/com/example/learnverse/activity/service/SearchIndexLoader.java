@@ -0,0 +1,132 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.repository.ActivityRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+// Loaded after ActivityDataMigration has rewritten legacy documents
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@Slf4j
+public class SearchIndexLoader implements CommandLineRunner {
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private ActivityScorer activityScorer;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private CatalogReplica catalogReplica;
+
+    // Empty disables the on-disk segment and always rebuilds from Mongo
+    @Value("${search.index.segment-path:}")
+    private String segmentPath;
+
+    // Replayed on top of the checkpoint to absorb clock skew between app nodes and writers
+    @Value("${search.index.replay-overlap:5m}")
+    private Duration replayOverlap;
+
+    // Time of the last full sync with Mongo; later local writes are simply replayed again next start
+    private volatile Instant checkpoint;
+
+    @Override
+    public void run(String... args) throws Exception {
+        loadIndex();
+        loadReplica();
+    }
+
+    private void loadReplica() {
+        if (!catalogReplica.isEnabled()) {
+            return;
+        }
+        try {
+            catalogReplica.load();
+        } catch (Exception e) {
+            // /filter falls back to Mongo while the replica is not loaded
+            log.error("Error loading catalog replica: ", e);
+        }
+    }
+
+    private void loadIndex() {
+        try {
+            Instant syncStartedAt = Instant.now();
+
+            Instant segmentCheckpoint = restoreSegment();
+            if (segmentCheckpoint != null) {
+                List<Activity> changed = activityRepository.findByUpdatedAtAfter(
+                        Date.from(segmentCheckpoint.minus(replayOverlap)));
+                activityScorer.indexActivities(changed);
+
+                log.info("Search index restored from segment with {} activities, replayed {} changes",
+                        activityScorer.getIndexedDocumentCount(), changed.size());
+            } else {
+                List<Activity> activities = activityRepository.findByIsActiveAndIsPublic(true, true);
+                activityScorer.rebuildIndex(activities);
+
+                log.info("Search index loaded with {} activities", activityScorer.getIndexedDocumentCount());
+            }
+
+            checkpoint = syncStartedAt;
+            catalogVersion.bump();
+            persistSegment();
+
+        } catch (Exception e) {
+            // Search still works without a warm index; candidates are indexed lazily on first use
+            log.error("Error loading search index: ", e);
+        }
+    }
+
+    public Instant getCheckpoint() {
+        return checkpoint;
+    }
+
+    // Called by CatalogChangeSync once every change up to the given time is applied, so the
+    // segment written on shutdown needs less replay on the next start
+    public void advanceCheckpoint(Instant appliedUpTo) {
+        if (checkpoint != null && appliedUpTo.isAfter(checkpoint)) {
+            checkpoint = appliedUpTo;
+        }
+    }
+
+    @PreDestroy
+    public void persistSegment() {
+        if (segmentPath.isBlank() || checkpoint == null) {
+            return;
+        }
+        try {
+            activityScorer.writeSegment(Path.of(segmentPath), checkpoint);
+        } catch (Exception e) {
+            log.warn("Could not write search index segment to {}: {}", segmentPath, e.getMessage());
+        }
+    }
+
+    private Instant restoreSegment() {
+        if (segmentPath.isBlank()) {
+            return null;
+        }
+        try {
+            return activityScorer.loadSegment(Path.of(segmentPath));
+        } catch (Exception e) {
+            // A damaged segment only costs a full rebuild
+            log.warn("Could not read search index segment {}: {}", segmentPath, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.learnverse.activity.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+@Component
+@Slf4j
+public class SimilarityRanker {
+
+//    - Scores search candidates into a bounded top-K heap
+//    - Small candidate sets are scored sequentially on the request thread
+//    - Large ones are split into chunks on a dedicated ForkJoinPool, each chunk keeps
+//      its own partial top-K and the partials are merged on the way back up
+
+    @FunctionalInterface
+    public interface CandidateScorer {
+        float score(int position);
+    }
+
+    private final int parallelThreshold;
+    private final int chunkSize;
+    private final ForkJoinPool scoringPool;
+
+    public SimilarityRanker(@Value("${search.ranking.parallel-threshold:256}") int parallelThreshold,
+                            @Value("${search.ranking.chunk-size:128}") int chunkSize,
+                            @Value("${search.ranking.parallelism:0}") int parallelism,
+                            @Value("${search.candidates.limit:500}") int candidateLimit) {
+        this.parallelThreshold = parallelThreshold;
+        this.chunkSize = Math.max(chunkSize, 1);
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.scoringPool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("search-scoring-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+
+        log.info("Search scoring pool started with {} threads, parallel from {} candidates", threads, parallelThreshold);
+        if (parallelThreshold > candidateLimit) {
+            log.warn("search.ranking.parallel-threshold ({}) is above search.candidates.limit ({}); "
+                    + "scoring will always run sequentially", parallelThreshold, candidateLimit);
+        }
+    }
+
+    // Keeps the best `limit` of `candidateCount` candidates. With a threshold, scanning stops
+    // (per chunk when parallel) once every retained slot scores at least that much.
+    public TopKCollector rank(int candidateCount, int limit, Float scoreThreshold, CandidateScorer scorer) {
+        if (candidateCount < parallelThreshold || scoringPool.getParallelism() < 2) {
+            return scoreRange(0, candidateCount, limit, scoreThreshold, scorer);
+        }
+        return scoringPool.invoke(new ScoreChunkTask(0, candidateCount, limit, scoreThreshold, scorer));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scoringPool.shutdown();
+    }
+
+    private static TopKCollector scoreRange(int from, int to, int limit, Float scoreThreshold, CandidateScorer scorer) {
+        TopKCollector collector = new TopKCollector(limit);
+        for (int position = from; position < to; position++) {
+            collector.collect(position, scorer.score(position));
+
+            if (scoreThreshold != null && collector.isSaturatedAt(scoreThreshold)) {
+                break;
+            }
+        }
+        return collector;
+    }
+
+    private class ScoreChunkTask extends RecursiveTask<TopKCollector> {
+        private final int from;
+        private final int to;
+        private final int limit;
+        private final Float scoreThreshold;
+        private final CandidateScorer scorer;
+
+        ScoreChunkTask(int from, int to, int limit, Float scoreThreshold, CandidateScorer scorer) {
+            this.from = from;
+            this.to = to;
+            this.limit = limit;
+            this.scoreThreshold = scoreThreshold;
+            this.scorer = scorer;
+        }
+
+        @Override
+        protected TopKCollector compute() {
+            if (to - from <= chunkSize) {
+                return scoreRange(from, to, limit, scoreThreshold, scorer);
+            }
+
+            int middle = (from + to) >>> 1;
+            ScoreChunkTask left = new ScoreChunkTask(from, middle, limit, scoreThreshold, scorer);
+            ScoreChunkTask right = new ScoreChunkTask(middle, to, limit, scoreThreshold, scorer);
+
+            left.fork();
+            TopKCollector merged = right.compute();
+            merged.merge(left.join());
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.nlp.TermDictionary;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Copy-on-write index shared by the scorers. The index is an immutable snapshot behind an
+// AtomicReference: searches score lock-free against the snapshot they started with, writers
+// (serialized on the scorer) copy what they change into an IndexBuilder and swap the result in.
+// Subclasses decide what a document stores and how a snapshot is weighted.
+@Slf4j
+abstract class SnapshotActivityScorer<D extends SnapshotActivityScorer.TermDocument,
+        S extends SnapshotActivityScorer.Snapshot<D>> implements ActivityScorer {
+
+    // Share of the catalog that may change before stored per-document weights are recomputed
+    private static final double REFRESH_THRESHOLD = 0.1;
+
+    // A document's distinct term ids, ascending; each counted once in the document frequencies
+    abstract static class TermDocument {
+        final int[] termIds;
+
+        TermDocument(int[] termIds) {
+            this.termIds = termIds;
+        }
+    }
+
+    // Never mutated once published
+    abstract static class Snapshot<D> {
+        final long version;
+        final TermDictionary dictionary;
+        final int[] documentFrequencies;
+        final Map<String, D> documents;
+        // Documents added or removed since stored weights were last recomputed for the whole index
+        final int changesSinceRefresh;
+
+        Snapshot(long version, TermDictionary dictionary, int[] documentFrequencies,
+                 Map<String, D> documents, int changesSinceRefresh) {
+            this.version = version;
+            this.dictionary = dictionary;
+            this.documentFrequencies = documentFrequencies;
+            this.documents = documents;
+            this.changesSinceRefresh = changesSinceRefresh;
+        }
+    }
+
+    // Maps an analyzed token to the term id a document stores it under
+    @FunctionalInterface
+    interface TermResolver {
+        int termId(char[] buffer, int length);
+    }
+
+    private final S empty;
+    protected final AtomicReference<S> snapshot;
+
+    protected SnapshotActivityScorer(S empty) {
+        this.empty = empty;
+        this.snapshot = new AtomicReference<>(empty);
+    }
+
+    // Scorer name for log lines
+    protected abstract String indexName();
+
+    protected abstract IndexBuilder newBuilder(S base);
+
+    @Override
+    public synchronized void rebuildIndex(List<Activity> activities) {
+        log.info("Building {} index for {} activities", indexName(), activities.size());
+
+        IndexBuilder builder = newBuilder(empty);
+        for (Activity activity : activities) {
+            if (activity.getId() != null) {
+                builder.addDocument(activity);
+            }
+        }
+        S built = builder.build(true);
+        snapshot.set(built);
+
+        log.info("{} index built with {} unique terms", indexName(), built.dictionary.size());
+    }
+
+    @Override
+    public void indexActivity(Activity activity) {
+        indexActivities(List.of(activity));
+    }
+
+    @Override
+    public void indexActivities(Collection<Activity> activities) {
+        updateIndex(activities, List.of());
+    }
+
+    @Override
+    public void removeActivity(String activityId) {
+        updateIndex(List.of(), List.of(activityId));
+    }
+
+    // One snapshot swap for the whole batch
+    @Override
+    public synchronized void updateIndex(Collection<Activity> changed, Collection<String> removedIds) {
+        IndexBuilder builder = newBuilder(snapshot.get());
+
+        for (String activityId : removedIds) {
+            builder.removeDocument(activityId);
+        }
+        for (Activity activity : changed) {
+            if (activity == null || activity.getId() == null) {
+                continue;
+            }
+
+            builder.removeDocument(activity.getId());
+            if (isSearchable(activity)) {
+                builder.addDocument(activity);
+            }
+        }
+
+        snapshot.set(builder.build(false));
+    }
+
+    @Override
+    public int getIndexedDocumentCount() {
+        return snapshot.get().documents.size();
+    }
+
+    // For scoring a document without indexing it: known terms keep their id, terms the snapshot has
+    // never seen get throwaway ids past the dictionary, which no query term can match
+    static TermResolver unindexedTerms(TermDictionary dictionary) {
+        Map<String, Integer> unseen = new HashMap<>();
+        return (buffer, length) -> {
+            int termId = dictionary.lookup(buffer, length);
+            if (termId >= 0) {
+                return termId;
+            }
+            return unseen.computeIfAbsent(new String(buffer, 0, length), term -> dictionary.size() + unseen.size());
+        };
+    }
+
+    static boolean isSearchable(Activity activity) {
+        return Boolean.TRUE.equals(activity.getIsActive()) && Boolean.TRUE.equals(activity.getIsPublic());
+    }
+
+    // Prepares the next snapshot from a base one; only used while holding the writer lock
+    abstract class IndexBuilder {
+        final long version;
+        TermDictionary dictionary;
+        private boolean ownsDictionary;
+        int[] documentFrequencies;
+        final Map<String, D> documents;
+        int changesSinceRefresh;
+
+        IndexBuilder(S base) {
+            // Versions keep increasing across rebuilds so anything keyed on them never sees a reused number
+            this.version = snapshot.get().version + 1;
+            this.dictionary = base.dictionary;
+            this.documentFrequencies = Arrays.copyOf(base.documentFrequencies,
+                    Math.max(base.documentFrequencies.length, 1024));
+            this.documents = new HashMap<>(base.documents);
+            this.changesSinceRefresh = base.changesSinceRefresh;
+        }
+
+        // Analyzes the activity, counts its terms with countTerm and stores it with putDocument
+        abstract void addDocument(Activity activity);
+
+        // Publishes the next snapshot; documents stored by addDocument are weighted here, against
+        // the final frequencies of the batch, and all of them when refreshDue says so
+        abstract S build(boolean forceRefresh);
+
+        void removeDocument(String activityId) {
+            D document = documents.remove(activityId);
+            if (document == null) {
+                return;
+            }
+
+            // Vocabulary slots are kept so term ids stay stable; only frequencies shrink
+            for (int termId : document.termIds) {
+                documentFrequencies[termId]--;
+            }
+            documentRemoved(document);
+            changesSinceRefresh++;
+        }
+
+        // Stores an analyzed document; it is weighted in build()
+        void putDocument(String activityId, D document) {
+            documents.put(activityId, document);
+            changesSinceRefresh++;
+        }
+
+        // Scorer-specific totals a removed document contributed to
+        void documentRemoved(D document) {
+        }
+
+        void countTerm(int termId) {
+            if (termId >= documentFrequencies.length) {
+                documentFrequencies = Arrays.copyOf(documentFrequencies,
+                        Math.max(documentFrequencies.length * 2, termId + 1));
+            }
+            documentFrequencies[termId]++;
+        }
+
+        // Stored weights carry the statistics of the moment they were computed; refresh them once enough of the catalog moved
+        boolean refreshDue(boolean forceRefresh) {
+            return forceRefresh || changesSinceRefresh > Math.max(1, documents.size() * REFRESH_THRESHOLD);
+        }
+
+        // The published dictionary is shared with readers, so it is copied before the first new term
+        int termId(char[] buffer, int length) {
+            int termId = dictionary.lookup(buffer, length);
+            if (termId < 0) {
+                if (!ownsDictionary) {
+                    dictionary = dictionary.copy();
+                    ownsDictionary = true;
+                }
+                termId = dictionary.add(buffer, length);
+            }
+            return termId;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.learnverse.activity.service;
+
+import java.util.Arrays;
+
+// Term-weight vector holding only non-zero entries: ascending term ids with parallel weights.
+// The L2 norm is computed once at construction so cosine scoring is a single merge walk.
+public final class SparseVector {
+
+    private static final SparseVector EMPTY = new SparseVector(new int[0], new float[0]);
+
+    private final int[] termIds;
+    private final float[] weights;
+    private final float norm;
+
+    // termIds must be strictly ascending and the same length as weights
+    public SparseVector(int[] termIds, float[] weights) {
+        if (termIds.length != weights.length) {
+            throw new IllegalArgumentException("Term ids and weights must have the same length");
+        }
+        this.termIds = termIds;
+        this.weights = weights;
+
+        double sumOfSquares = 0.0;
+        for (float weight : weights) {
+            sumOfSquares += (double) weight * weight;
+        }
+        this.norm = (float) Math.sqrt(sumOfSquares);
+    }
+
+    public static SparseVector empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return termIds.length;
+    }
+
+    public boolean isEmpty() {
+        return termIds.length == 0;
+    }
+
+    public float weightAt(int position) {
+        return weights[position];
+    }
+
+    public double dot(SparseVector other) {
+        int[] otherIds = other.termIds;
+        float[] otherWeights = other.weights;
+
+        double dotProduct = 0.0;
+        int i = 0;
+        int j = 0;
+
+        while (i < termIds.length && j < otherIds.length) {
+            int a = termIds[i];
+            int b = otherIds[j];
+            if (a == b) {
+                dotProduct += (double) weights[i] * otherWeights[j];
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        return dotProduct;
+    }
+
+    public double cosineSimilarity(SparseVector other) {
+        if (norm == 0.0f || other.norm == 0.0f) {
+            return 0.0;
+        }
+        return dot(other) / ((double) norm * other.norm);
+    }
+
+    @Override
+    public String toString() {
+        return "SparseVector{termIds=" + Arrays.toString(termIds) + ", weights=" + Arrays.toString(weights) + "}";
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.learnverse.activity.service;
+
+import java.util.Arrays;
+
+// Primitive int -> count accumulator (open addressing), used to collect term frequencies
+// for one document or query without boxing.
+final class TermCounter {
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    TermCounter() {
+        this(64);
+    }
+
+    TermCounter(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(expectedKeys, 8) * 2 - 1) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    void increment(int key) {
+        int mask = keys.length - 1;
+        int slot = (key * 0x9E3779B9) >>> 1 & mask;
+
+        while (counts[slot] != 0) {
+            if (keys[slot] == key) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        counts[slot] = 1;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // (key << 32 | count) ascending by key
+    long[] toSortedPacked() {
+        long[] packed = new long[size];
+        int i = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (counts[slot] != 0) {
+                packed[i++] = ((long) keys[slot] << 32) | counts[slot];
+            }
+        }
+        Arrays.sort(packed);
+        return packed;
+    }
+
+    static int keyOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    static int countOf(long packed) {
+        return (int) packed;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] != 0) {
+                int slot = (oldKeys[i] * 0x9E3779B9) >>> 1 & mask;
+                while (counts[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+}
@@ -1,125 +1,390 @@
 package com.example.learnverse.activity.service;
 
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.nlp.TermDictionary;
+import com.example.learnverse.activity.nlp.TextAnalyzer;
+import com.example.learnverse.config.CacheConfig;
+import com.example.learnverse.config.VersionedCacheKey;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
-import java.text.Normalizer;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 @Service
 @Slf4j
-@EnableCaching
-public class TfIdfService {
+@ConditionalOnProperty(name = "search.scorer", havingValue = "tfidf", matchIfMissing = true)
+public class TfIdfService extends SnapshotActivityScorer<TfIdfService.IndexedDocument, TfIdfService.IndexSnapshot> {
 
-//    - Text preprocessing (lowercase, remove punctuation, normalize)
+//    - Text analysis is delegated to the shared TextAnalyzer
 //    - TF-IDF vectorization (converts text to numerical vectors)
 //    - Cosine similarity calculation (measures text relevance)
 //    - Vocabulary management (tracks all unique words)
+//    - Long-lived index over the public catalog, maintained incrementally on writes
+//    - Snapshot publishing and the writer side come from SnapshotActivityScorer
+//    - Query vectors are cached per index version, so a swap makes old entries unreachable
+//    - Snapshots can be written to a binary segment file and mapped back on startup
 
 
-    private Map<String, Integer> termToIndex = new HashMap<>();
-    private Map<String, Integer> documentFrequencies = new HashMap<>();
-    private int totalDocuments = 0;
+    // Segment layout (big-endian):
+    //   magic, format, index version, checkpoint millis, changes since reweight
+    //   term count, terms (length + chars), document frequency per term
+    //   document count, per document: id (length + chars), entry count, term ids, counts, weights
+    //   CRC32 of everything before it
+    private static final int SEGMENT_MAGIC = 0x4C565449; // "LVTI"
+    private static final int SEGMENT_FORMAT = 1;
 
-    @Cacheable(value = "activityVectors", key = "#p0", condition = "#p0 != null")
-    public double[] vectorizeText(String text) {
-        List<String> tokens = preprocess(text);
-        Map<String, Integer> termCounts = new HashMap<>();
+    private final TextAnalyzer textAnalyzer;
+    private final CacheManager cacheManager;
 
-        for (String token : tokens) {
-            termCounts.put(token, termCounts.getOrDefault(token, 0) + 1);
+    public TfIdfService(TextAnalyzer textAnalyzer, CacheManager cacheManager) {
+        super(IndexSnapshot.EMPTY);
+        this.textAnalyzer = textAnalyzer;
+        this.cacheManager = cacheManager;
+    }
+
+    // Per-document term ids/counts plus the weighted vector, so ranking never re-tokenizes documents
+    static final class IndexedDocument extends TermDocument {
+        final int[] termCounts;
+        final SparseVector vector;
+
+        IndexedDocument(int[] termIds, int[] termCounts, SparseVector vector) {
+            super(termIds);
+            this.termCounts = termCounts;
+            this.vector = vector;
+        }
+    }
+
+    static final class IndexSnapshot extends Snapshot<IndexedDocument> {
+        static final IndexSnapshot EMPTY = new IndexSnapshot(0, new TermDictionary(), new int[0], Map.of(), 0);
+
+        IndexSnapshot(long version, TermDictionary dictionary, int[] documentFrequencies,
+                      Map<String, IndexedDocument> documents, int changesSinceRefresh) {
+            super(version, dictionary, documentFrequencies, documents, changesSinceRefresh);
         }
 
-        double[] vector = new double[termToIndex.size()];
+        int totalDocuments() {
+            return documents.size();
+        }
 
-        for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
-            String term = entry.getKey();
-            if (!termToIndex.containsKey(term)) {
-                continue;
+        SparseVector weigh(int[] termIds, int[] termCounts) {
+            float[] weights = new float[termIds.length];
+
+            for (int i = 0; i < termIds.length; i++) {
+                // Throwaway ids of unindexed documents lie past the frequencies and count as unseen
+                int df = Math.max(termIds[i] < documentFrequencies.length ? documentFrequencies[termIds[i]] : 0, 1);
+                double idf = Math.log(1.0 + (double) totalDocuments() / df);
+                weights[i] = (float) (termCounts[i] * idf);
             }
 
-            int idx = termToIndex.get(term);
-            int tf = entry.getValue();
-            int df = documentFrequencies.getOrDefault(term, 1);
+            return new SparseVector(termIds, weights);
+        }
+    }
+
+    @Override
+    public ScoringQuery prepareQuery(String queryText) {
+        IndexSnapshot current = snapshot.get();
+        SparseVector queryVector = cachedQueryVector(current, queryText);
 
-            double idf = Math.log(1.0 + (double) totalDocuments / df);
-            double tfIdf = tf * idf;
+        return new ScoringQuery() {
+            @Override
+            public boolean isEmpty() {
+                return queryVector.isEmpty();
+            }
 
-            vector[idx] = tfIdf;
+            @Override
+            public float score(Activity activity) {
+                if (queryVector.isEmpty()) {
+                    return 0.0f;
+                }
+                IndexedDocument document = current.documents.get(activity.getId());
+                SparseVector vector = document != null ? document.vector : vectorizeUnindexed(current, activity);
+                return (float) queryVector.cosineSimilarity(vector);
+            }
+        };
+    }
+
+    private SparseVector vectorizeUnindexed(IndexSnapshot current, Activity activity) {
+        TermCounter termCounts = new TermCounter();
+        analyzeDocument(activity, termCounts, unindexedTerms(current.dictionary));
+
+        long[] packed = termCounts.toSortedPacked();
+        int[] termIds = new int[packed.length];
+        int[] counts = new int[packed.length];
+        for (int j = 0; j < packed.length; j++) {
+            termIds[j] = TermCounter.keyOf(packed[j]);
+            counts[j] = TermCounter.countOf(packed[j]);
         }
 
-        return vector;
+        return current.weigh(termIds, counts);
     }
 
-    @Cacheable(value = "tfidfIndex", key = "#p0.hashCode()", condition = "#p0 != null && !#p0.isEmpty()")
-    public void buildIndex(List<String> documents) {
-        log.info("Building TF-IDF index for {} documents", documents.size());
+    // The key carries the snapshot version the weights were computed against; the cached
+    // value is only the small query vector, never the snapshot itself
+    private SparseVector cachedQueryVector(IndexSnapshot current, String text) {
+        Cache cache = cacheManager.getCache(CacheConfig.QUERY_VECTORS);
+        if (cache == null || text == null || text.isBlank()) {
+            return vectorizeText(current, text);
+        }
+        return cache.get(new VersionedCacheKey("tfidf", current.version, text),
+                () -> vectorizeText(current, text));
+    }
+
+    private SparseVector vectorizeText(IndexSnapshot current, String text) {
+        TermCounter termCounts = new TermCounter(16);
+        textAnalyzer.analyze(text, (buffer, length) -> {
+            int termId = current.dictionary.lookup(buffer, length);
+            if (termId >= 0) {
+                termCounts.increment(termId);
+            }
+        });
+
+        if (termCounts.size() == 0) {
+            return SparseVector.empty();
+        }
+
+        long[] packed = termCounts.toSortedPacked();
+        int[] termIds = new int[packed.length];
+        int[] counts = new int[packed.length];
+        for (int j = 0; j < packed.length; j++) {
+            termIds[j] = TermCounter.keyOf(packed[j]);
+            counts[j] = TermCounter.countOf(packed[j]);
+        }
+
+        return current.weigh(termIds, counts);
+    }
 
-        termToIndex.clear();
-        documentFrequencies.clear();
-        totalDocuments = documents.size();
+    @Override
+    protected String indexName() {
+        return "TF-IDF";
+    }
+
+    @Override
+    protected IndexBuilder newBuilder(IndexSnapshot base) {
+        return new TfIdfIndexBuilder(base);
+    }
 
-        int termIndex = 0;
+    @Override
+    public boolean writeSegment(Path path, Instant checkpoint) throws IOException {
+        IndexSnapshot current = snapshot.get();
+
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
 
-        for (String doc : documents) {
-            List<String> tokens = preprocess(doc);
-            Set<String> uniqueTokens = new HashSet<>(tokens);
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16), crc))) {
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeInt(SEGMENT_FORMAT);
+            out.writeLong(current.version);
+            out.writeLong(checkpoint.toEpochMilli());
+            out.writeInt(current.changesSinceRefresh);
 
-            for (String token : uniqueTokens) {
-                documentFrequencies.put(token, documentFrequencies.getOrDefault(token, 0) + 1);
-                if (!termToIndex.containsKey(token)) {
-                    termToIndex.put(token, termIndex++);
+            int termCount = current.dictionary.size();
+            out.writeInt(termCount);
+            for (int termId = 0; termId < termCount; termId++) {
+                writeString(out, current.dictionary.term(termId));
+            }
+            for (int termId = 0; termId < termCount; termId++) {
+                out.writeInt(current.documentFrequencies[termId]);
+            }
+
+            out.writeInt(current.documents.size());
+            for (Map.Entry<String, IndexedDocument> entry : current.documents.entrySet()) {
+                IndexedDocument document = entry.getValue();
+                writeString(out, entry.getKey());
+                out.writeInt(document.termIds.length);
+                for (int termId : document.termIds) {
+                    out.writeInt(termId);
+                }
+                for (int count : document.termCounts) {
+                    out.writeInt(count);
+                }
+                for (int i = 0; i < document.vector.size(); i++) {
+                    out.writeFloat(document.vector.weightAt(i));
                 }
             }
+
+            long checksum = crc.getValue();
+            out.writeLong(checksum);
         }
 
-        log.info("TF-IDF index built with {} unique terms", termToIndex.size());
+        // Readers of the old file (or a crash mid-write) never see a half-written segment
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Wrote TF-IDF segment v{} with {} documents to {}", current.version, current.documents.size(), path);
+        return true;
     }
 
-    public static double cosineSimilarity(double[] vec1, double[] vec2) {
-        if (vec1.length != vec2.length) {
-            return 0.0;
+    @Override
+    public synchronized Instant loadSegment(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
         }
 
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int checksumOffset = buffer.limit() - Long.BYTES;
+            if (checksumOffset < 0) {
+                log.warn("Ignoring truncated search segment {}", path);
+                return null;
+            }
 
-        for (int i = 0; i < vec1.length; i++) {
-            dotProduct += vec1[i] * vec2[i];
-            normA += vec1[i] * vec1[i];
-            normB += vec2[i] * vec2[i];
-        }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, checksumOffset));
+            if (crc.getValue() != buffer.getLong(checksumOffset)) {
+                log.warn("Ignoring search segment {} with a bad checksum", path);
+                return null;
+            }
+            if (buffer.getInt() != SEGMENT_MAGIC || buffer.getInt() != SEGMENT_FORMAT) {
+                log.warn("Ignoring search segment {} with an unknown format", path);
+                return null;
+            }
+
+            long segmentVersion = buffer.getLong();
+            Instant checkpoint = Instant.ofEpochMilli(buffer.getLong());
+            int changesSinceRefresh = buffer.getInt();
+
+            // Terms are re-added in id order, so the rebuilt dictionary hands out the same ids
+            int termCount = buffer.getInt();
+            TermDictionary dictionary = new TermDictionary();
+            char[] chars = new char[64];
+            for (int termId = 0; termId < termCount; termId++) {
+                int length = buffer.getInt();
+                if (length > chars.length) {
+                    chars = new char[Math.max(length, chars.length * 2)];
+                }
+                buffer.asCharBuffer().get(chars, 0, length);
+                buffer.position(buffer.position() + length * Character.BYTES);
+                dictionary.add(chars, length);
+            }
 
-        normA = Math.sqrt(normA);
-        normB = Math.sqrt(normB);
+            int[] documentFrequencies = new int[Math.max(termCount, 1024)];
+            readInts(buffer, documentFrequencies, termCount);
 
-        if (normA == 0.0 || normB == 0.0) {
-            return 0.0;
+            int documentCount = buffer.getInt();
+            Map<String, IndexedDocument> documents = new HashMap<>(Math.max(16, (int) (documentCount / 0.75f) + 1));
+            for (int d = 0; d < documentCount; d++) {
+                String activityId = readString(buffer);
+                int size = buffer.getInt();
+                int[] termIds = new int[size];
+                int[] counts = new int[size];
+                float[] weights = new float[size];
+                readInts(buffer, termIds, size);
+                readInts(buffer, counts, size);
+                buffer.asFloatBuffer().get(weights, 0, size);
+                buffer.position(buffer.position() + size * Float.BYTES);
+                documents.put(activityId, new IndexedDocument(termIds, counts, new SparseVector(termIds, weights)));
+            }
+
+            long version = Math.max(segmentVersion, snapshot.get().version + 1);
+            snapshot.set(new IndexSnapshot(version, dictionary, documentFrequencies, documents, changesSinceRefresh));
+
+            log.info("Loaded TF-IDF segment with {} documents and {} terms, checkpoint {}",
+                    documentCount, termCount, checkpoint);
+            return checkpoint;
         }
+    }
 
-        return dotProduct / (normA * normB);
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeInt(value.length());
+        out.writeChars(value);
     }
 
-    private List<String> preprocess(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return new ArrayList<>();
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        char[] chars = new char[length];
+        buffer.asCharBuffer().get(chars);
+        buffer.position(buffer.position() + length * Character.BYTES);
+        return new String(chars);
+    }
+
+    private static void readInts(ByteBuffer buffer, int[] target, int count) {
+        buffer.asIntBuffer().get(target, 0, count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+    }
+
+    private final class TfIdfIndexBuilder extends IndexBuilder {
+
+        TfIdfIndexBuilder(IndexSnapshot base) {
+            super(base);
         }
 
-        // Lowercase and remove special characters
-        text = text.toLowerCase();
-        text = text.replaceAll("[^a-zA-Z0-9\\s]", " ");
-        text = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        @Override
+        void addDocument(Activity activity) {
+            TermCounter termCounts = new TermCounter();
+            analyzeDocument(activity, termCounts, this::termId);
 
-        // Split and filter tokens
-        List<String> tokens = Arrays.stream(text.split("\\s+"))
-                .filter(token -> token.length() > 2)
-                .collect(Collectors.toList());
+            long[] packed = termCounts.toSortedPacked();
+            int[] termIds = new int[packed.length];
+            int[] counts = new int[packed.length];
+            for (int j = 0; j < packed.length; j++) {
+                termIds[j] = TermCounter.keyOf(packed[j]);
+                counts[j] = TermCounter.countOf(packed[j]);
+                countTerm(termIds[j]);
+            }
+
+            putDocument(activity.getId(), new IndexedDocument(termIds, counts, null));
+        }
+
+        // Stored weights carry the IDF of the moment they were computed
+        @Override
+        IndexSnapshot build(boolean forceRefresh) {
+            boolean reweightAll = refreshDue(forceRefresh);
+
+            IndexSnapshot next = new IndexSnapshot(version, dictionary, documentFrequencies,
+                    documents, reweightAll ? 0 : changesSinceRefresh);
 
-        return tokens;
+            for (Map.Entry<String, IndexedDocument> entry : documents.entrySet()) {
+                IndexedDocument document = entry.getValue();
+                if (reweightAll || document.vector == null) {
+                    entry.setValue(new IndexedDocument(document.termIds, document.termCounts,
+                            next.weigh(document.termIds, document.termCounts)));
+                }
+            }
+            return next;
+        }
     }
-}
 
+    private void analyzeDocument(Activity activity, TermCounter termCounts, TermResolver terms) {
+        // Weight important fields by repetition
+        analyzeField(activity.getTitle(), 2, termCounts, terms);
+        analyzeField(activity.getSubject(), 2, termCounts, terms);
+        analyzeField(activity.getDescription(), 1, termCounts, terms);
+
+        if (activity.getTags() != null) {
+            for (String tag : activity.getTags()) {
+                analyzeField(tag, 1, termCounts, terms);
+            }
+        }
+
+        analyzeField(activity.getActivityType(), 1, termCounts, terms);
+        analyzeField(activity.getClassType(), 1, termCounts, terms);
+    }
+
+    private void analyzeField(String text, int weight, TermCounter termCounts, TermResolver terms) {
+        textAnalyzer.analyze(text, (buffer, length) -> {
+            int termId = terms.termId(buffer, length);
+            for (int i = 0; i < weight; i++) {
+                termCounts.increment(termId);
+            }
+        });
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.learnverse.activity.service;
+
+// Bounded min-heap over (candidate position, score) kept in primitive arrays.
+// Holds the best `capacity` candidates seen so far; ties prefer the lower position so
+// results keep the candidate order for equal scores, like a stable sort would.
+public final class TopKCollector {
+
+    private final int capacity;
+    private final int[] positions;
+    private final float[] scores;
+    private int size;
+
+    public TopKCollector(int capacity) {
+        this.capacity = Math.max(capacity, 1);
+        this.positions = new int[this.capacity];
+        this.scores = new float[this.capacity];
+    }
+
+    public void collect(int position, float score) {
+        if (size < capacity) {
+            positions[size] = position;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (ranksAbove(position, score, positions[0], scores[0])) {
+            positions[0] = position;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public float maxScore() {
+        float max = 0.0f;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, scores[i]);
+        }
+        return max;
+    }
+
+    // Folds another collector's entries into this one, e.g. partial results from parallel chunks
+    public void merge(TopKCollector other) {
+        for (int i = 0; i < other.size; i++) {
+            collect(other.positions[i], other.scores[i]);
+        }
+    }
+
+    // True once every retained slot scores at least `threshold`, i.e. the caller may stop scanning
+    public boolean isSaturatedAt(float threshold) {
+        return isFull() && scores[0] >= threshold;
+    }
+
+    // Retained candidate positions ordered best first
+    public int[] topPositions() {
+        int[] heapPositions = positions.clone();
+        float[] heapScores = scores.clone();
+        int remaining = size;
+
+        int[] ordered = new int[size];
+        while (remaining > 0) {
+            ordered[remaining - 1] = heapPositions[0];
+            remaining--;
+            heapPositions[0] = heapPositions[remaining];
+            heapScores[0] = heapScores[remaining];
+            siftDown(heapPositions, heapScores, remaining, 0);
+        }
+        return ordered;
+    }
+
+    private static boolean ranksAbove(int positionA, float scoreA, int positionB, float scoreB) {
+        if (scoreA != scoreB) {
+            return scoreA > scoreB;
+        }
+        return positionA < positionB;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksAbove(positions[parent], scores[parent], positions[index], scores[index])) {
+                break;
+            }
+            swap(positions, scores, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        siftDown(positions, scores, size, index);
+    }
+
+    private static void siftDown(int[] positions, float[] scores, int size, int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int worst = left;
+            if (right < size && ranksAbove(positions[left], scores[left], positions[right], scores[right])) {
+                worst = right;
+            }
+            if (!ranksAbove(positions[index], scores[index], positions[worst], scores[worst])) {
+                return;
+            }
+            swap(positions, scores, index, worst);
+            index = worst;
+        }
+    }
+
+    private static void swap(int[] positions, float[] scores, int i, int j) {
+        int position = positions[i];
+        positions[i] = positions[j];
+        positions[j] = position;
+
+        float score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
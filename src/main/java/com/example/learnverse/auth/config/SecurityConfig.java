@@ -35,6 +35,7 @@ public class SecurityConfig {
         // Authorization rules - FIXED WILDCARDS
         http.authorizeHttpRequests(auth -> auth
                 .requestMatchers("/auth/**", "/actuator/health", "/api/hello").permitAll()         // Public endpoints
+                .requestMatchers("/actuator/**").hasRole("ADMIN")                                  // Caches, query diagnostics, metrics
                 .requestMatchers("/api/tutor/**").hasRole("TUTOR")                                 // Tutor-only endpoints
                 .requestMatchers("/api/user/**").hasRole("USER")                                   // User-only endpoints (including interests)
                 .requestMatchers("/api/activities/create").hasRole("TUTOR")                         // Only tutors create activity
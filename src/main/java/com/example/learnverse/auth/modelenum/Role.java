@@ -1,6 +1,8 @@
 package com.example.learnverse.auth.modelenum;
 
 public enum Role {
-    USER, TUTOR
+    USER, TUTOR,
+    // Operators only; there is no sign-up route for it, the role is set on the account directly
+    ADMIN
 }
 
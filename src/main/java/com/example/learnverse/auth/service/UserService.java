@@ -4,9 +4,17 @@ import com.example.learnverse.auth.dto.UserInterestDto;
 import com.example.learnverse.auth.modelenum.Role;
 import com.example.learnverse.auth.repo.UserRepository;
 import com.example.learnverse.auth.user.AppUser;
+import com.example.learnverse.auth.user.UserInterestsChangedEvent;
+import com.example.learnverse.auth.user.UserProfile;
+import com.example.learnverse.config.CacheConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -17,6 +25,11 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Request attribute prefix for profiles already looked up while handling the current request
+    private static final String PROFILE_MEMO_PREFIX = UserService.class.getName() + ".profile:";
 
     public AppUser addUserInterests(String userId, UserInterestDto interestDto) {
         AppUser user = userRepository.findById(userId)
@@ -39,7 +52,16 @@ public class UserService {
         }
 
         user.setInterests(normalizedInterests);
-        AppUser savedUser = userRepository.save(user);
+        AppUser savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (RuntimeException e) {
+            // The write may or may not have landed; make the next read go to Mongo
+            evictProfile(userId);
+            throw e;
+        }
+        cacheProfile(UserProfile.from(savedUser));
+        eventPublisher.publishEvent(new UserInterestsChangedEvent(userId, normalizedInterests));
 
         log.info("Added interests for user {}: {}", userId, normalizedInterests);
         return savedUser;
@@ -50,19 +72,65 @@ public class UserService {
     }
 
     public List<String> getUserInterests(String userId) {
-        AppUser user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found: " + userId));
+        UserProfile profile = getUserProfile(userId);
 
-        if (user.getRole() != Role.USER) {
+        if (profile.role() != Role.USER) {
             throw new RuntimeException("Only users with USER role have interests");
         }
 
-        return user.getInterests();
+        return profile.interests();
+    }
+
+    // Role and interests for feed and recommendation requests. Served from the current request's
+    // memo, then the user-profiles cache, and only then from Mongo.
+    public UserProfile getUserProfile(String userId) {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        String memoKey = PROFILE_MEMO_PREFIX + userId;
+        if (request != null && request.getAttribute(memoKey, RequestAttributes.SCOPE_REQUEST) instanceof UserProfile memo) {
+            return memo;
+        }
+
+        Cache cache = cacheManager.getCache(CacheConfig.USER_PROFILES);
+        UserProfile profile = cache != null ? cache.get(userId, UserProfile.class) : null;
+        if (profile == null) {
+            profile = UserProfile.from(getUserById(userId));
+            if (cache != null) {
+                cache.put(userId, profile);
+            }
+        }
+
+        if (request != null) {
+            request.setAttribute(memoKey, profile, RequestAttributes.SCOPE_REQUEST);
+        }
+        return profile;
     }
 
     public AppUser getUserById(String userId) {
         return userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found: " + userId));
     }
-}
 
+    private void cacheProfile(UserProfile profile) {
+        Cache cache = cacheManager.getCache(CacheConfig.USER_PROFILES);
+        if (cache != null) {
+            cache.put(profile.id(), profile);
+        }
+
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.setAttribute(PROFILE_MEMO_PREFIX + profile.id(), profile, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private void evictProfile(String userId) {
+        Cache cache = cacheManager.getCache(CacheConfig.USER_PROFILES);
+        if (cache != null) {
+            cache.evict(userId);
+        }
+
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.removeAttribute(PROFILE_MEMO_PREFIX + userId, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
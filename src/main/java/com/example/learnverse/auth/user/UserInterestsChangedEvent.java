@@ -0,0 +1,7 @@
+package com.example.learnverse.auth.user;
+
+import java.util.List;
+
+// Published by UserService after a user's interests are saved
+public record UserInterestsChangedEvent(String userId, List<String> interests) {
+}
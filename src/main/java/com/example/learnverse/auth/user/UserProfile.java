@@ -0,0 +1,15 @@
+package com.example.learnverse.auth.user;
+
+import com.example.learnverse.auth.modelenum.Role;
+
+import java.util.List;
+
+// The part of AppUser that feed and recommendation requests read. Immutable and free of
+// credentials, so it can sit in the user-profiles cache and be shared between requests.
+public record UserProfile(String id, Role role, List<String> interests) {
+
+    public static UserProfile from(AppUser user) {
+        return new UserProfile(user.getId(), user.getRole(),
+                user.getInterests() != null ? List.copyOf(user.getInterests()) : null);
+    }
+}
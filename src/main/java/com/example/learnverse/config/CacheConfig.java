@@ -0,0 +1,47 @@
+package com.example.learnverse.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+@Slf4j
+public class CacheConfig {
+
+    // Analyzed query vectors, keyed by index version + query text
+    public static final String QUERY_VECTORS = "query-vectors";
+
+    // Ranked natural search results, keyed by catalog version + normalized parsed query
+    public static final String SEARCH_RESULTS = "search-results";
+
+    // Facet option counts, keyed by catalog version + normalized filter
+    public static final String FACET_COUNTS = "facet-counts";
+
+    // UserProfile by user id; written through by UserService on interest changes
+    public static final String USER_PROFILES = "user-profiles";
+
+    // Ranked /my-feed activity ids by user id; entries carry the catalog version they were built at
+    public static final String PERSONAL_FEEDS = "personal-feeds";
+
+    @Bean
+    public CacheManager cacheManager(CacheSpecProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+
+        // Caches not listed under learnverse.cache.specs are created on first use with the default spec
+        cacheManager.setCaffeineSpec(CaffeineSpec.parse(properties.getDefaultSpec()));
+
+        properties.getSpecs().forEach((name, spec) -> {
+            cacheManager.registerCustomCache(name, Caffeine.from(spec).build());
+            log.info("Registered cache '{}' with spec {}", name, spec);
+        });
+
+        return cacheManager;
+    }
+}
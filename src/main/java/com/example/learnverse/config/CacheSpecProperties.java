@@ -0,0 +1,20 @@
+package com.example.learnverse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "learnverse.cache")
+public class CacheSpecProperties {
+
+    // Caffeine spec for caches without their own entry
+    private String defaultSpec = "maximumSize=1000,expireAfterWrite=1h,recordStats";
+
+    // Caffeine spec per cache name, e.g. query-vectors: maximumSize=5000,expireAfterWrite=30m,recordStats
+    private Map<String, String> specs = new HashMap<>();
+}
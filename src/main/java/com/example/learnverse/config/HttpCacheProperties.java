@@ -0,0 +1,20 @@
+package com.example.learnverse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "learnverse.http-cache")
+public class HttpCacheProperties {
+
+    // Cache-Control for endpoints without their own entry
+    private String defaultCacheControl = "private, no-cache";
+
+    // Cache-Control per endpoint name, e.g. all: private, max-age=30
+    private Map<String, String> cacheControl = new HashMap<>();
+}
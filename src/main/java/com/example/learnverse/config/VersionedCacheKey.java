@@ -0,0 +1,6 @@
+package com.example.learnverse.config;
+
+// Cache key bound to the version of the data it was computed from. Once the source moves
+// to a new version no lookup produces the old key again, so stale entries simply age out.
+public record VersionedCacheKey(String namespace, long version, Object key) {
+}
@@ -0,0 +1,17 @@
+package com.example.learnverse.diagnostics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MongoDiagnosticsConfig {
+
+    // Attaches the query diagnostics listener to the auto-configured MongoClient
+    @Bean
+    @ConditionalOnProperty(name = "diagnostics.mongo.enabled", havingValue = "true", matchIfMissing = true)
+    public MongoClientSettingsBuilderCustomizer queryDiagnosticsCustomizer(QueryDiagnostics queryDiagnostics) {
+        return builder -> builder.addCommandListener(queryDiagnostics);
+    }
+}
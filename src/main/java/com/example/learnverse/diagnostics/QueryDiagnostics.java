@@ -0,0 +1,402 @@
+package com.example.learnverse.diagnostics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Mongo driver CommandListener that groups read commands by query shape (filter/pipeline with the
+// literal values blanked out) and records latency and returned documents per shape, a ring
+// buffer of slow commands, and a periodically sampled explain("executionStats") per shape
+// showing the winning plan and how many keys/documents it examined.
+// Registered on the client by MongoDiagnosticsConfig, served at /actuator/querydiagnostics.
+@Component
+@Slf4j
+public class QueryDiagnostics implements CommandListener {
+
+    private static final Set<String> TRACKED_COMMANDS = Set.of("find", "aggregate", "count", "distinct");
+
+    // Keys whose values are part of the shape itself (sort direction, projected fields)
+    private static final Set<String> SHAPE_VALUE_KEYS = Set.of("sort", "$sort", "projection", "$project");
+
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+    private final long slowQueryMs;
+    private final int maxShapes;
+    private final Duration explainInterval;
+
+    private final Map<Integer, PendingCommand> pending = new ConcurrentHashMap<>();
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private final AtomicLong untrackedShapes = new AtomicLong();
+
+    private final SlowQuery[] slowQueries;
+    private int slowQueryNext;
+    private long slowQueryTotal;
+
+    // Explains run off the request path on one thread; when it falls behind, samples are dropped
+    private final ThreadPoolExecutor explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), runnable -> {
+                Thread thread = new Thread(runnable, "query-explain");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    public QueryDiagnostics(ObjectProvider<MongoTemplate> mongoTemplate,
+                            @Value("${diagnostics.mongo.slow-query-ms:200}") long slowQueryMs,
+                            @Value("${diagnostics.mongo.slow-query-buffer:100}") int slowQueryBuffer,
+                            @Value("${diagnostics.mongo.max-shapes:500}") int maxShapes,
+                            @Value("${diagnostics.mongo.explain-interval:10m}") Duration explainInterval) {
+        this.mongoTemplate = mongoTemplate;
+        this.slowQueryMs = slowQueryMs;
+        this.maxShapes = maxShapes;
+        this.explainInterval = explainInterval;
+        this.slowQueries = new SlowQuery[Math.max(slowQueryBuffer, 1)];
+    }
+
+    private record PendingCommand(String shape, String collection, BsonDocument explainable) {
+    }
+
+    public record SlowQuery(Instant at, String shape, long durationMs, int documentsReturned) {
+    }
+
+    public record ExplainSample(Instant at, List<String> plan, long keysExamined, long documentsExamined,
+                                long documentsReturned, long executionTimeMs) {
+    }
+
+    // Per-shape counters; small critical sections, so plain synchronization is enough
+    static final class ShapeStats {
+        private final String collection;
+        private long count;
+        private long failures;
+        private long totalMicros;
+        private long maxMicros;
+        private long documentsReturned;
+        private Instant lastExplainAt;
+        private ExplainSample lastExplain;
+
+        ShapeStats(String collection) {
+            this.collection = collection;
+        }
+
+        synchronized void record(long micros, int returned) {
+            count++;
+            totalMicros += micros;
+            maxMicros = Math.max(maxMicros, micros);
+            documentsReturned += returned;
+        }
+
+        synchronized void recordFailure(long micros) {
+            failures++;
+            totalMicros += micros;
+            maxMicros = Math.max(maxMicros, micros);
+        }
+
+        synchronized boolean claimExplain(Instant now, Duration interval) {
+            if (lastExplainAt != null && lastExplainAt.plus(interval).isAfter(now)) {
+                return false;
+            }
+            lastExplainAt = now;
+            return true;
+        }
+
+        synchronized void explained(ExplainSample sample) {
+            lastExplain = sample;
+        }
+
+        synchronized Map<String, Object> toMap(String shape) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            long executions = count + failures;
+            map.put("shape", shape);
+            map.put("collection", collection);
+            map.put("count", count);
+            map.put("failures", failures);
+            map.put("totalMs", totalMicros / 1000.0);
+            map.put("avgMs", executions > 0 ? totalMicros / 1000.0 / executions : 0.0);
+            map.put("maxMs", maxMicros / 1000.0);
+            map.put("avgDocumentsReturned", count > 0 ? (double) documentsReturned / count : 0.0);
+            if (lastExplain != null) {
+                map.put("explain", lastExplain);
+            }
+            return map;
+        }
+
+        synchronized long totalMicros() {
+            return totalMicros;
+        }
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!TRACKED_COMMANDS.contains(event.getCommandName())) {
+            return;
+        }
+
+        // The event's command is only valid during this callback, so everything is derived now
+        BsonDocument command = event.getCommand();
+        BsonValue target = command.get(event.getCommandName());
+        String collection = target != null && target.isString() ? target.asString().getValue() : "?";
+        String shape = shapeOf(event.getCommandName(), collection, command);
+
+        ShapeStats stats = shapes.get(shape);
+        if (stats == null) {
+            if (shapes.size() >= maxShapes) {
+                untrackedShapes.incrementAndGet();
+                return;
+            }
+            stats = shapes.computeIfAbsent(shape, key -> new ShapeStats(collection));
+        }
+
+        BsonDocument explainable = stats.claimExplain(Instant.now(), explainInterval)
+                ? explainableCopy(command)
+                : null;
+        pending.put(event.getRequestId(), new PendingCommand(shape, collection, explainable));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        PendingCommand command = pending.remove(event.getRequestId());
+        if (command == null) {
+            return;
+        }
+
+        long micros = event.getElapsedTime(TimeUnit.MICROSECONDS);
+        int returned = documentsReturned(event.getResponse());
+        ShapeStats stats = shapes.get(command.shape());
+        if (stats != null) {
+            stats.record(micros, returned);
+        }
+
+        if (micros >= slowQueryMs * 1000) {
+            recordSlowQuery(new SlowQuery(Instant.now(), command.shape(), micros / 1000, returned));
+            log.warn("Slow Mongo query ({} ms, {} docs): {}", micros / 1000, returned, command.shape());
+        }
+
+        if (command.explainable() != null && stats != null) {
+            explainExecutor.execute(() -> explain(command.explainable(), stats));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        PendingCommand command = pending.remove(event.getRequestId());
+        if (command == null) {
+            return;
+        }
+        ShapeStats stats = shapes.get(command.shape());
+        if (stats != null) {
+            stats.recordFailure(event.getElapsedTime(TimeUnit.MICROSECONDS));
+        }
+    }
+
+    // Shapes ordered by total time spent, most expensive first
+    public List<Map<String, Object>> shapeStats() {
+        List<Map.Entry<String, ShapeStats>> entries = new ArrayList<>(shapes.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, ShapeStats> entry) -> entry.getValue().totalMicros())
+                .reversed());
+
+        List<Map<String, Object>> result = new ArrayList<>(entries.size());
+        for (Map.Entry<String, ShapeStats> entry : entries) {
+            result.add(entry.getValue().toMap(entry.getKey()));
+        }
+        return result;
+    }
+
+    // Newest first
+    public synchronized List<SlowQuery> slowQueries() {
+        List<SlowQuery> result = new ArrayList<>();
+        for (int i = 1; i <= slowQueries.length; i++) {
+            SlowQuery slowQuery = slowQueries[Math.floorMod(slowQueryNext - i, slowQueries.length)];
+            if (slowQuery != null) {
+                result.add(slowQuery);
+            }
+        }
+        return result;
+    }
+
+    public synchronized long slowQueryTotal() {
+        return slowQueryTotal;
+    }
+
+    public long untrackedShapes() {
+        return untrackedShapes.get();
+    }
+
+    public synchronized void reset() {
+        shapes.clear();
+        Arrays.fill(slowQueries, null);
+        slowQueryNext = 0;
+        slowQueryTotal = 0;
+        untrackedShapes.set(0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        explainExecutor.shutdownNow();
+    }
+
+    private synchronized void recordSlowQuery(SlowQuery slowQuery) {
+        slowQueries[slowQueryNext] = slowQuery;
+        slowQueryNext = (slowQueryNext + 1) % slowQueries.length;
+        slowQueryTotal++;
+    }
+
+    private void explain(BsonDocument command, ShapeStats stats) {
+        try {
+            BsonDocument explainCommand = new BsonDocument("explain", command)
+                    .append("verbosity", new BsonString("executionStats"));
+            Document result = mongoTemplate.getObject().getDb().runCommand(explainCommand);
+
+            List<String> plan = new ArrayList<>();
+            collectPlanStages(find(result, "winningPlan"), plan);
+
+            Object executionStats = find(result, "executionStats");
+            Document statsDocument = executionStats instanceof Document document ? document : new Document();
+
+            stats.explained(new ExplainSample(Instant.now(), plan,
+                    number(statsDocument.get("totalKeysExamined")),
+                    number(statsDocument.get("totalDocsExamined")),
+                    number(statsDocument.get("nReturned")),
+                    number(statsDocument.get("executionTimeMillis"))));
+        } catch (Exception e) {
+            log.debug("Explain failed for sampled query: {}", e.getMessage());
+        }
+    }
+
+    // Command without driver/session fields, suitable for wrapping in explain
+    private static BsonDocument explainableCopy(BsonDocument command) {
+        BsonDocument copy = new BsonDocument();
+        for (Map.Entry<String, BsonValue> entry : command.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith("$") && !key.equals("lsid") && !key.equals("txnNumber")) {
+                copy.append(key, entry.getValue().clone());
+            }
+        }
+        return copy;
+    }
+
+    private static String shapeOf(String commandName, String collection, BsonDocument command) {
+        StringBuilder shape = new StringBuilder(commandName).append(' ').append(collection);
+        for (String part : new String[]{"filter", "query", "sort", "projection", "pipeline", "key"}) {
+            BsonValue value = command.get(part);
+            if (value != null) {
+                shape.append(' ').append(part).append('=');
+                appendShape(shape, value, SHAPE_VALUE_KEYS.contains(part));
+            }
+        }
+        return shape.toString();
+    }
+
+    // Literal values become "?" (arrays of literals collapse to one) unless they are part of the shape
+    private static void appendShape(StringBuilder shape, BsonValue value, boolean keepValues) {
+        if (value.isDocument()) {
+            shape.append('{');
+            boolean first = true;
+            for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+                if (!first) {
+                    shape.append(", ");
+                }
+                first = false;
+                shape.append(entry.getKey()).append(": ");
+                appendShape(shape, entry.getValue(), keepValues || SHAPE_VALUE_KEYS.contains(entry.getKey()));
+            }
+            shape.append('}');
+        } else if (value.isArray()) {
+            BsonArray array = value.asArray();
+            boolean literals = array.stream().noneMatch(element -> element.isDocument() || element.isArray());
+            shape.append('[');
+            if (literals && !keepValues) {
+                shape.append(array.isEmpty() ? "" : "?");
+            } else {
+                for (int i = 0; i < array.size(); i++) {
+                    if (i > 0) {
+                        shape.append(", ");
+                    }
+                    appendShape(shape, array.get(i), keepValues);
+                }
+            }
+            shape.append(']');
+        } else if (keepValues) {
+            shape.append(value.isString() ? value.asString().getValue() : value.toString());
+        } else {
+            shape.append('?');
+        }
+    }
+
+    private static int documentsReturned(BsonDocument response) {
+        BsonValue cursor = response.get("cursor");
+        if (cursor != null && cursor.isDocument()) {
+            BsonValue firstBatch = cursor.asDocument().get("firstBatch");
+            return firstBatch != null && firstBatch.isArray() ? firstBatch.asArray().size() : 0;
+        }
+        BsonValue n = response.get("n");
+        if (n != null && n.isNumber()) {
+            return n.asNumber().intValue();
+        }
+        BsonValue values = response.get("values");
+        return values != null && values.isArray() ? values.asArray().size() : 0;
+    }
+
+    // Explain output nests differently for find, aggregate and the SBE engine, so look the key up anywhere
+    private static Object find(Object node, String key) {
+        if (node instanceof Document document) {
+            if (document.containsKey(key)) {
+                return document.get(key);
+            }
+            for (Object value : document.values()) {
+                Object found = find(value, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                Object found = find(value, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Stage names top-down, with the index for index scans, e.g. [FETCH, IXSCAN(idx_basic_filter)]
+    private static void collectPlanStages(Object node, List<String> plan) {
+        if (node instanceof Document document) {
+            Object stage = document.get("stage");
+            if (stage != null) {
+                Object indexName = document.get("indexName");
+                plan.add(indexName != null ? stage + "(" + indexName + ")" : stage.toString());
+            }
+            for (Object value : document.values()) {
+                collectPlanStages(value, plan);
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                collectPlanStages(value, plan);
+            }
+        }
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+}
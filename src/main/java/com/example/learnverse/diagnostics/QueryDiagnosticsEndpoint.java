@@ -0,0 +1,35 @@
+package com.example.learnverse.diagnostics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GET /actuator/querydiagnostics - per-shape Mongo query stats and recent slow queries
+// DELETE /actuator/querydiagnostics - reset all counters
+@Component
+@Endpoint(id = "querydiagnostics")
+@RequiredArgsConstructor
+public class QueryDiagnosticsEndpoint {
+
+    private final QueryDiagnostics queryDiagnostics;
+
+    @ReadOperation
+    public Map<String, Object> queryDiagnostics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("shapes", queryDiagnostics.shapeStats());
+        result.put("untrackedShapes", queryDiagnostics.untrackedShapes());
+        result.put("slowQueryTotal", queryDiagnostics.slowQueryTotal());
+        result.put("slowQueries", queryDiagnostics.slowQueries());
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        queryDiagnostics.reset();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.learnverse.activity.filter;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FilterCursorTests {
+
+    private static final String PRICE = "pricing.price";
+
+    @Test
+    void roundTripKeepsValueTypes() {
+        ObjectId id = new ObjectId();
+        Date createdAt = new Date(1_700_000_000_123L);
+
+        FilterCursor dateCursor = new FilterCursor("createdAt", Sort.Direction.DESC, createdAt, id);
+        FilterCursor decoded = FilterCursor.decode(dateCursor.encode(), "createdAt", Sort.Direction.DESC);
+        assertThat(decoded).isEqualTo(dateCursor);
+        assertThat(decoded.sortValue()).isInstanceOf(Date.class);
+        assertThat(decoded.id()).isInstanceOf(ObjectId.class);
+
+        FilterCursor ratingCursor = new FilterCursor("reviews.averageRating", Sort.Direction.ASC, 4.0, id);
+        assertThat(FilterCursor.decode(ratingCursor.encode(), "reviews.averageRating", Sort.Direction.ASC).sortValue())
+                .isEqualTo(4.0);
+    }
+
+    @Test
+    void roundTripKeepsNullSortValue() {
+        ObjectId id = new ObjectId();
+        FilterCursor cursor = new FilterCursor(PRICE, Sort.Direction.ASC, null, id);
+
+        FilterCursor decoded = FilterCursor.decode(cursor.encode(), PRICE, Sort.Direction.ASC);
+        assertThat(decoded.sortValue()).isNull();
+        assertThat(decoded.id()).isEqualTo(id);
+    }
+
+    @Test
+    void rejectsCursorFromAnotherSortOrMalformedToken() {
+        String token = new FilterCursor(PRICE, Sort.Direction.ASC, 500, new ObjectId()).encode();
+
+        assertThatThrownBy(() -> FilterCursor.decode(token, PRICE, Sort.Direction.DESC))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FilterCursor.decode(token, "createdAt", Sort.Direction.ASC))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FilterCursor.decode("not a cursor!", PRICE, Sort.Direction.ASC))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        String withoutId = new FilterCursor(PRICE, Sort.Direction.ASC, 500, null).encode();
+        assertThatThrownBy(() -> FilterCursor.decode(withoutId, PRICE, Sort.Direction.ASC))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ascendingSeekVisitsEveryDocumentOnce() {
+        assertPagesCoverCatalog(Sort.Direction.ASC);
+    }
+
+    @Test
+    void descendingSeekVisitsEveryDocumentOnce() {
+        assertPagesCoverCatalog(Sort.Direction.DESC);
+    }
+
+    @Test
+    void descendingSeekFromNullOnlyContinuesWithinNulls() {
+        ObjectId id = new ObjectId();
+        Document criteria = new FilterCursor(PRICE, Sort.Direction.DESC, null, id).toCriteria().getCriteriaObject();
+
+        assertThat(criteria).isEqualTo(new Document(PRICE, null).append("_id", new Document("$lt", id)));
+    }
+
+    // Pages through a catalog with repeated and missing prices the way /filter does (cursor from the
+    // last row, through its token), evaluating each seek like Mongo would, and expects the full order
+    private static void assertPagesCoverCatalog(Sort.Direction direction) {
+        Random random = new Random(3);
+        List<Map<String, Object>> catalog = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Map<String, Object> document = new HashMap<>();
+            document.put("_id", new ObjectId());
+            document.put(PRICE, random.nextInt(4) == 0 ? null : random.nextInt(6) * 500);
+            catalog.add(document);
+        }
+
+        Comparator<Map<String, Object>> order = Comparator
+                .<Map<String, Object>, Integer>comparing(document -> (Integer) document.get(PRICE),
+                        Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(document -> (ObjectId) document.get("_id"));
+        if (!direction.isAscending()) {
+            order = order.reversed();
+        }
+        List<Map<String, Object>> expected = catalog.stream().sorted(order).toList();
+
+        List<Map<String, Object>> visited = new ArrayList<>();
+        String token = null;
+        while (true) {
+            Document criteria = token != null
+                    ? FilterCursor.decode(token, PRICE, direction).toCriteria().getCriteriaObject()
+                    : null;
+            List<Map<String, Object>> page = catalog.stream()
+                    .filter(document -> criteria == null || matches(criteria, document))
+                    .sorted(order)
+                    .limit(7)
+                    .toList();
+            if (page.isEmpty()) {
+                break;
+            }
+            visited.addAll(page);
+
+            Map<String, Object> last = page.get(page.size() - 1);
+            token = new FilterCursor(PRICE, direction, last.get(PRICE), last.get("_id")).encode();
+        }
+
+        assertThat(visited).containsExactlyElementsOf(expected);
+    }
+
+    // Just the query operators toCriteria produces, with Mongo's semantics for null and missing values
+    @SuppressWarnings("unchecked")
+    private static boolean matches(Document query, Map<String, Object> document) {
+        for (Map.Entry<String, Object> clause : query.entrySet()) {
+            if (clause.getKey().equals("$or")) {
+                if (((List<Document>) clause.getValue()).stream().noneMatch(branch -> matches(branch, document))) {
+                    return false;
+                }
+                continue;
+            }
+
+            Object actual = document.get(clause.getKey());
+            if (!(clause.getValue() instanceof Document operators)) {
+                if (!Objects.equals(actual, clause.getValue())) {
+                    return false;
+                }
+                continue;
+            }
+            for (Map.Entry<String, Object> operator : operators.entrySet()) {
+                Object operand = operator.getValue();
+                boolean matched = switch (operator.getKey()) {
+                    case "$ne" -> !Objects.equals(actual, operand);
+                    case "$gt" -> actual != null && compare(actual, operand) > 0;
+                    case "$lt" -> actual != null && compare(actual, operand) < 0;
+                    default -> throw new IllegalArgumentException("Unexpected operator " + operator.getKey());
+                };
+                if (!matched) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object actual, Object operand) {
+        return ((Comparable<Object>) actual).compareTo(operand);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.filter.ActivityFilterDto;
+import com.example.learnverse.activity.model.ActivityFacets;
+import com.example.learnverse.activity.model.ActivitySummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Each facet dimension counts options with every filter applied except its own. That is checked
+// against /filter itself: drop the dimension's filter, run the Mongo filter path, and count the results.
+class ActivityFacetCountTests extends MongoIntegrationTests {
+
+    // search.facets.price-boundaries in application.yml
+    private static final int[] PRICE_BOUNDARIES = {0, 500, 1000, 2500, 5000, 10000};
+    private static final int[] RATING_OPTIONS = {4, 3, 2, 1};
+
+    private static final Pageable EVERYTHING = PageRequest.of(0, 10_000, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @BeforeEach
+    void loadCatalog() {
+        seedCatalog(500);
+        // Facet counts are cached per catalog version, and seeding bypasses the write paths that bump it
+        catalogVersion.bump();
+    }
+
+    @Test
+    void eachDimensionCountsTheResultsOfEveryOtherFilter() {
+        List<ActivityFilterDto> filters = List.of(
+                new ActivityFilterDto(),
+                ActivityFilterDto.builder().modes(List.of("online")).build(),
+                ActivityFilterDto.builder().difficulties(List.of("beginner", "advanced")).build(),
+                ActivityFilterDto.builder().cities(List.of("Pune", "delhi")).build(),
+                ActivityFilterDto.builder().priceTypes(List.of("monthly")).sessionDays(List.of("monday")).build(),
+                ActivityFilterDto.builder().minPrice(1000).maxPrice(3000).build(),
+                ActivityFilterDto.builder().minRating(3.0).build(),
+                ActivityFilterDto.builder().subjects(List.of("math", "coding")).demoAvailable(true)
+                        .modes(List.of("online", "hybrid")).cities(List.of("pune")).minRating(2.0).build(),
+                ActivityFilterDto.builder().modes(List.of("offline")).difficulties(List.of("intermediate"))
+                        .cities(List.of("mumbai")).priceTypes(List.of("per_course", "monthly"))
+                        .sessionDays(List.of("wednesday", "saturday")).minPrice(500).maxPrice(4000)
+                        .minRating(2.5).build());
+
+        for (ActivityFilterDto filter : filters) {
+            ActivityFacets facets = activityService.getFacetCounts(filter);
+            Map<String, List<ActivityFacets.FacetCount>> counts = facets.getFacets();
+
+            assertThat(facets.getTotal()).as("total for %s", filter)
+                    .isEqualTo(activityService.filterInMongo(filter, EVERYTHING).getTotalElements());
+
+            assertValueCounts(counts.get("mode"), filter, dto -> dto.toBuilder().modes(null).build(),
+                    summary -> List.of(summary.getMode()));
+            assertValueCounts(counts.get("difficulty"), filter, dto -> dto.toBuilder().difficulties(null).build(),
+                    summary -> List.of(summary.getDifficulty()));
+            assertValueCounts(counts.get("city"), filter, dto -> dto.toBuilder().cities(null).build(),
+                    summary -> List.of(summary.getLocation().getCity()));
+            assertValueCounts(counts.get("priceType"), filter, dto -> dto.toBuilder().priceTypes(null).build(),
+                    summary -> summary.getPricing() != null ? List.of(summary.getPricing().getPriceType()) : List.of());
+            assertValueCounts(counts.get("sessionDays"), filter, dto -> dto.toBuilder().sessionDays(null).build(),
+                    summary -> summary.getSchedule().getSessionDays());
+
+            assertThat(asMap(counts.get("price"))).as("price for %s", filter)
+                    .isEqualTo(expectedPriceCounts(results(filter.toBuilder().minPrice(null).maxPrice(null).build())));
+            assertThat(asMap(counts.get("rating"))).as("rating for %s", filter)
+                    .isEqualTo(expectedRatingCounts(results(filter.toBuilder().minRating(null).build())));
+        }
+    }
+
+    private void assertValueCounts(List<ActivityFacets.FacetCount> actual, ActivityFilterDto filter,
+                                   UnaryOperator<ActivityFilterDto> withoutOwnFilter,
+                                   Function<ActivitySummary, List<String>> values) {
+        Map<String, Long> expected = results(withoutOwnFilter.apply(filter)).stream()
+                .flatMap(summary -> values.apply(summary).stream())
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+
+        // $sortByCount leaves the order of equal counts open, so options are compared as a map
+        assertThat(asMap(actual)).as("%s", filter).isEqualTo(expected);
+    }
+
+    private List<ActivitySummary> results(ActivityFilterDto filter) {
+        return activityService.filterInMongo(filter, EVERYTHING).getContent();
+    }
+
+    // Ranges are [lower, next lower); activities without a price are not counted
+    private static Map<String, Long> expectedPriceCounts(List<ActivitySummary> results) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < PRICE_BOUNDARIES.length; i++) {
+            int lower = PRICE_BOUNDARIES[i];
+            int upper = i + 1 < PRICE_BOUNDARIES.length ? PRICE_BOUNDARIES[i + 1] : Integer.MAX_VALUE;
+            String label = i + 1 < PRICE_BOUNDARIES.length ? lower + "-" + upper : lower + "+";
+            counts.put(label, results.stream()
+                    .filter(summary -> summary.getPricing() != null && summary.getPricing().getPrice() != null)
+                    .map(summary -> summary.getPricing().getPrice())
+                    .filter(price -> price >= lower && price < upper)
+                    .count());
+        }
+        return counts;
+    }
+
+    // Each option counts the activities rated at least that much
+    private static Map<String, Long> expectedRatingCounts(List<ActivitySummary> results) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int minRating : RATING_OPTIONS) {
+            counts.put(String.valueOf(minRating), results.stream()
+                    .filter(summary -> summary.getReviews() != null && summary.getReviews().getAverageRating() != null)
+                    .filter(summary -> summary.getReviews().getAverageRating() >= minRating)
+                    .count());
+        }
+        return counts;
+    }
+
+    private static Map<String, Long> asMap(List<ActivityFacets.FacetCount> counts) {
+        return counts.stream().collect(Collectors.toMap(ActivityFacets.FacetCount::value, ActivityFacets.FacetCount::count));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.filter.ActivityFilterDto;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The /filter aggregation must leave $match and $sort adjacent, so an (isActive, isPublic, key)
+// index provides the order and the page (or the approximate count cap) ends the scan early
+class ActivityFilterPipelineTests extends MongoIntegrationTests {
+
+    @Autowired
+    private ActivityService activityService;
+
+    @BeforeEach
+    void loadCatalog() {
+        seedCatalog(300);
+    }
+
+    @Test
+    void indexedSortKeysAreServedByAnIndexScanWithoutSorting() {
+        List<Sort> sorts = List.of(
+                Sort.by(Sort.Direction.ASC, "pricing.price"),
+                Sort.by(Sort.Direction.DESC, "pricing.price"),
+                Sort.by(Sort.Direction.DESC, "reviews.averageRating"),
+                Sort.by(Sort.Direction.DESC, "enrollmentInfo.enrolledCount"),
+                Sort.by(Sort.Direction.DESC, "createdAt"),
+                Sort.by(Sort.Direction.ASC, "duration.totalDuration"));
+
+        for (Sort sort : sorts) {
+            for (boolean approximate : List.of(false, true)) {
+                ActivityFilterDto filter = ActivityFilterDto.builder().approximateTotal(approximate).build();
+                Document explain = explain(activityService.filterAggregation(filter, PageRequest.of(1, 20, sort)));
+
+                String description = sort + (approximate ? " (approximate)" : "");
+                assertThat(stageNames(explain)).as(description).doesNotContain("$sort", "$project");
+
+                List<Document> winningPlans = new ArrayList<>();
+                collect(explain, "winningPlan", winningPlans);
+                assertThat(winningPlans).as(description).isNotEmpty();
+                for (Document plan : winningPlans) {
+                    List<String> planStages = new ArrayList<>();
+                    collectStages(plan, planStages);
+                    assertThat(planStages).as(description).contains("IXSCAN").doesNotContain("SORT");
+                }
+            }
+        }
+    }
+
+    private Document explain(TypedAggregation<?> aggregation) {
+        return mongoTemplate.getDb().runCommand(new Document("explain", new Document("aggregate", "activities")
+                .append("pipeline", aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT))
+                .append("cursor", new Document()))
+                .append("verbosity", "queryPlanner"));
+    }
+
+    // Pipeline stages left after the query layer ($cursor holds what was pushed down)
+    private static List<String> stageNames(Document explain) {
+        List<String> names = new ArrayList<>();
+        for (Document stage : explain.getList("stages", Document.class, List.of())) {
+            names.add(stage.keySet().iterator().next());
+        }
+        return names;
+    }
+
+    private static void collect(Object node, String key, List<Document> found) {
+        if (node instanceof Map<?, ?> map) {
+            map.forEach((name, value) -> {
+                if (key.equals(name) && value instanceof Document document) {
+                    found.add(document);
+                } else {
+                    collect(value, key, found);
+                }
+            });
+        } else if (node instanceof List<?> list) {
+            list.forEach(item -> collect(item, key, found));
+        }
+    }
+
+    // Classic plans nest stages under inputStage(s); slot-based ones under queryPlan
+    private static void collectStages(Object node, List<String> stages) {
+        if (node instanceof Map<?, ?> map) {
+            if (map.get("stage") instanceof String stage) {
+                stages.add(stage);
+            }
+            map.values().forEach(value -> collectStages(value, stages));
+        } else if (node instanceof List<?> list) {
+            list.forEach(item -> collectStages(item, stages));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.nlp.TextAnalyzer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class Bm25fScorerTests {
+
+    @Test
+    void titleMatchOutranksTheSameTermInTheDescription() {
+        // Same field lengths on both sides, so only the field the term sits in differs
+        Activity inTitle = activity("t", "Pottery Workshop", "Weekend class with clay");
+        Activity inDescription = activity("d", "Weekend Workshop", "Pottery class with clay");
+
+        Bm25fScorer scorer = scorer(properties(2.0, 1.0, 0.75));
+        scorer.rebuildIndex(withFiller(inTitle, inDescription));
+
+        ActivityScorer.ScoringQuery query = scorer.prepareQuery("pottery");
+        assertThat(query.score(inTitle)).isGreaterThan(query.score(inDescription));
+    }
+
+    @Test
+    void fieldBoostsComeFromTheProperties() {
+        Activity inTitle = activity("t", "Pottery Workshop", "Weekend class with clay");
+        Activity inDescription = activity("d", "Weekend Workshop", "Pottery class with clay");
+
+        // Boosts are applied per query, so the same index ranks the other way round
+        Bm25fProperties properties = properties(2.0, 1.0, 0.75);
+        Bm25fScorer scorer = scorer(properties);
+        scorer.rebuildIndex(withFiller(inTitle, inDescription));
+
+        properties.getFields().get("title").setBoost(1.0);
+        properties.getFields().get("description").setBoost(3.0);
+
+        ActivityScorer.ScoringQuery query = scorer.prepareQuery("pottery");
+        assertThat(query.score(inDescription)).isGreaterThan(query.score(inTitle));
+    }
+
+    @Test
+    void longerFieldScoresLowerForTheSameTermFrequency() {
+        Activity shortDescription = activity("s", "Evening Session", "Pottery for adults");
+        Activity longDescription = activity("l", "Evening Session",
+                "Pottery for adults with wheel throwing, glazing, firing, trimming and decorating techniques");
+
+        Bm25fScorer scorer = scorer(properties(2.0, 1.0, 0.75));
+        scorer.rebuildIndex(withFiller(shortDescription, longDescription));
+
+        ActivityScorer.ScoringQuery query = scorer.prepareQuery("pottery");
+        assertThat(query.score(shortDescription)).isGreaterThan(query.score(longDescription));
+    }
+
+    @Test
+    void noLengthNormalizationWhenBIsZero() {
+        Activity shortDescription = activity("s", "Evening Session", "Pottery for adults");
+        Activity longDescription = activity("l", "Evening Session",
+                "Pottery for adults with wheel throwing, glazing, firing, trimming and decorating techniques");
+
+        Bm25fScorer scorer = scorer(properties(2.0, 1.0, 0.0));
+        scorer.rebuildIndex(withFiller(shortDescription, longDescription));
+
+        ActivityScorer.ScoringQuery query = scorer.prepareQuery("pottery");
+        assertThat(query.score(shortDescription)).isEqualTo(query.score(longDescription));
+    }
+
+    @Test
+    void incrementalUpdatesScoreLikeAFreshRebuild() {
+        List<Activity> catalog = new ArrayList<>(withFiller(
+                activity("p1", "Pottery Basics", "Hand building with clay for beginners"),
+                activity("p2", "Wheel Pottery", "Throwing bowls and cups on the wheel, then glazing them")));
+
+        Bm25fScorer incremental = scorer(properties(2.0, 1.0, 0.75));
+        incremental.rebuildIndex(catalog);
+
+        // One removal stays below the refresh threshold; the batch after it crosses it, and the
+        // refresh must leave no trace of the removed documents' lengths or frequencies
+        incremental.removeActivity("f3");
+        catalog.removeIf(activity -> activity.getId().equals("f3"));
+
+        Activity edited = activity("p1", "Pottery Basics", "Hand building, pinch pots and coil pots with clay");
+        Activity added = activity("n1", "Raku Pottery Night", "Outdoor raku firing with crackle glazes");
+        incremental.updateIndex(List.of(edited, added), List.of("f5", "f6"));
+        catalog.replaceAll(activity -> activity.getId().equals("p1") ? edited : activity);
+        catalog.removeIf(activity -> activity.getId().equals("f5") || activity.getId().equals("f6"));
+        catalog.add(added);
+
+        Bm25fScorer fresh = scorer(properties(2.0, 1.0, 0.75));
+        fresh.rebuildIndex(catalog);
+
+        assertThat(incremental.getIndexedDocumentCount()).isEqualTo(fresh.getIndexedDocumentCount());
+        for (String queryText : List.of("pottery clay", "raku glazes", "guitar chords", "python programming")) {
+            ActivityScorer.ScoringQuery expected = fresh.prepareQuery(queryText);
+            ActivityScorer.ScoringQuery actual = incremental.prepareQuery(queryText);
+            for (Activity activity : catalog) {
+                // Term ids differ between the two dictionaries, so per-term sums may round differently
+                assertThat(actual.score(activity))
+                        .as("%s scored for \"%s\"", activity.getId(), queryText)
+                        .isCloseTo(expected.score(activity), within(1e-5f));
+            }
+        }
+    }
+
+    @Test
+    void scorerPropertySelectsTheEngine() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withUserConfiguration(ScorerConfiguration.class, TfIdfService.class, Bm25fScorer.class, TextAnalyzer.class)
+                .withBean(CacheManager.class, ConcurrentMapCacheManager::new);
+
+        runner.run(context -> assertThat(context).getBean(ActivityScorer.class).isInstanceOf(TfIdfService.class));
+        runner.withPropertyValues("search.scorer=bm25f", "search.bm25f.fields.title.boost=3.5")
+                .run(context -> {
+                    assertThat(context).getBean(ActivityScorer.class).isInstanceOf(Bm25fScorer.class);
+                    assertThat(context.getBean(Bm25fProperties.class).weightFor("title").getBoost()).isEqualTo(3.5);
+                });
+    }
+
+    @EnableConfigurationProperties(Bm25fProperties.class)
+    static class ScorerConfiguration {
+    }
+
+    private static Bm25fScorer scorer(Bm25fProperties properties) {
+        return new Bm25fScorer(properties, new TextAnalyzer(), new ConcurrentMapCacheManager());
+    }
+
+    private static Bm25fProperties properties(double titleBoost, double descriptionBoost, double descriptionB) {
+        Bm25fProperties properties = new Bm25fProperties();
+        properties.getFields().put("title", fieldWeight(titleBoost, 0.75));
+        properties.getFields().put("description", fieldWeight(descriptionBoost, descriptionB));
+        return properties;
+    }
+
+    private static Bm25fProperties.FieldWeight fieldWeight(double boost, double b) {
+        Bm25fProperties.FieldWeight weight = new Bm25fProperties.FieldWeight();
+        weight.setBoost(boost);
+        weight.setB(b);
+        return weight;
+    }
+
+    // Unrelated activities, so idf and average lengths come from a catalog rather than two documents
+    private static List<Activity> withFiller(Activity... activities) {
+        List<Activity> catalog = new ArrayList<>(List.of(activities));
+        catalog.add(activity("f1", "Guitar Chords", "Strumming patterns and open chords"));
+        catalog.add(activity("f2", "Python Programming", "Variables, loops and functions in python"));
+        catalog.add(activity("f3", "Watercolor Painting", "Washes, layering and landscapes"));
+        catalog.add(activity("f4", "Chess Club", "Openings, tactics and endgames"));
+        catalog.add(activity("f5", "Spanish Conversation", "Everyday phrases and listening practice"));
+        catalog.add(activity("f6", "Robotics Lab", "Sensors, motors and simple programming"));
+        catalog.add(activity("f7", "Yoga for Teens", "Breathing, balance and flexibility"));
+        return catalog;
+    }
+
+    private static Activity activity(String id, String title, String description) {
+        return Activity.builder()
+                .id(id)
+                .title(title)
+                .description(description)
+                .subject("hobbies")
+                .activityType("course")
+                .isActive(true)
+                .isPublic(true)
+                .build();
+    }
+}
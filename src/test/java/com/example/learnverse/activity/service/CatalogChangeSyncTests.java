@@ -0,0 +1,310 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.repository.ActivityRepository;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Drives the sync worker against a mocked change stream. The error branches only run when a real
+// deployment misbehaves (oplog rolled over, standalone server, network trouble), so each one is
+// provoked here with the server error it reacts to.
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CatalogChangeSyncTests {
+
+    private static final long WAIT_MILLIS = 2000;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ActivityRepository activityRepository;
+
+    @Mock
+    private ActivityScorer activityScorer;
+
+    @Mock
+    private CatalogReplica catalogReplica;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Mock
+    private SearchIndexLoader searchIndexLoader;
+
+    @Mock
+    private MongoCollection<Document> collection;
+
+    @Mock(answer = Answers.RETURNS_SELF)
+    private ChangeStreamIterable<Document> changeStream;
+
+    @InjectMocks
+    private CatalogChangeSync sync;
+
+    @TempDir
+    Path directory;
+
+    private Path tokenPath;
+
+    @BeforeEach
+    void setUp() {
+        tokenPath = directory.resolve("catalog-sync.token");
+
+        ReflectionTestUtils.setField(sync, "mode", "auto");
+        ReflectionTestUtils.setField(sync, "pollInterval", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(sync, "retryDelay", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(sync, "resumeTokenPath", tokenPath.toString());
+        ReflectionTestUtils.setField(sync, "replayOverlap", Duration.ofMinutes(5));
+
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.getCollection("activities")).thenReturn(collection);
+        when(collection.watch(anyList())).thenReturn(changeStream);
+        when(catalogReplica.isEnabled()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sync.stop();
+    }
+
+    @Test
+    void eventsReadyTogetherAreAppliedAsOneBatch() {
+        String first = new ObjectId().toHexString();
+        String second = new ObjectId().toHexString();
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor =
+                cursor(upsert(first, "Pottery"), upsert(second, "Chess"), delete(first));
+        when(changeStream.cursor()).thenReturn(cursor);
+
+        sync.start();
+
+        // Only the latest state of each activity survives: the first one was deleted within the batch
+        ArgumentCaptor<Collection<Activity>> changed = changedCaptor();
+        verify(activityScorer, timeout(WAIT_MILLIS)).updateIndex(changed.capture(), eq(List.of(first)));
+        assertThat(changed.getValue()).extracting(Activity::getId).containsExactly(second);
+
+        verify(activityScorer, after(200).times(1)).updateIndex(any(), any());
+        verify(catalogReplica).update(any(), eq(List.of(first)));
+        verify(catalogVersion).bump();
+        verify(searchIndexLoader, atLeastOnce()).advanceCheckpoint(any());
+    }
+
+    @Test
+    void batchesStopAtTheMaximumSize() {
+        List<ChangeStreamDocument<Document>> events = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            events.add(upsert(new ObjectId().toHexString(), "Activity " + i));
+        }
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = cursor(events);
+        when(changeStream.cursor()).thenReturn(cursor);
+
+        sync.start();
+
+        ArgumentCaptor<Collection<Activity>> changed = changedCaptor();
+        verify(activityScorer, timeout(WAIT_MILLIS).times(2)).updateIndex(changed.capture(), any());
+        assertThat(changed.getAllValues()).extracting(Collection::size).containsExactly(500, 100);
+        verify(catalogVersion, timeout(WAIT_MILLIS).times(2)).bump();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {286, 136, 280})
+    void lostResumePointReloadsTheCatalogAndStartsOverWithoutToken(int errorCode) throws Exception {
+        BsonDocument savedToken = token("saved");
+        Files.writeString(tokenPath, savedToken.toJson());
+
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> failing = mockCursor();
+        when(failing.tryNext()).thenThrow(commandError(errorCode));
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> quiet = cursor();
+        when(changeStream.cursor()).thenReturn(failing, quiet);
+        List<Activity> catalog = List.of(Activity.builder().id(new ObjectId().toHexString()).build());
+        when(activityRepository.findByIsActiveAndIsPublic(true, true)).thenReturn(catalog);
+
+        sync.start();
+
+        verify(activityScorer, timeout(WAIT_MILLIS)).rebuildIndex(catalog);
+        verify(catalogReplica, timeout(WAIT_MILLIS)).load();
+        verify(catalogVersion, timeout(WAIT_MILLIS)).bump();
+
+        // The stream is reopened from the current position, not from the token that was lost
+        verify(changeStream, timeout(WAIT_MILLIS).times(2)).cursor();
+        verify(changeStream, after(200).times(1)).resumeAfter(any());
+        verify(changeStream).resumeAfter(savedToken);
+        assertThat(tokenPath).doesNotExist();
+    }
+
+    @Test
+    void invalidateEventReloadsTheCatalog() {
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> invalidated = cursor(event(OperationType.INVALIDATE));
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> reopened = cursor();
+        when(changeStream.cursor()).thenReturn(invalidated, reopened);
+
+        sync.start();
+
+        verify(activityScorer, timeout(WAIT_MILLIS)).rebuildIndex(any());
+        verify(changeStream, timeout(WAIT_MILLIS).times(2)).cursor();
+        verify(activityScorer, never()).updateIndex(any(), any());
+    }
+
+    @Test
+    void otherCommandErrorsRetryFromThePersistedToken() throws Exception {
+        BsonDocument token = token("after-first-batch");
+        ChangeStreamDocument<Document> change = upsert(new ObjectId().toHexString(), "Pottery");
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> failing = mockCursor();
+        when(failing.getResumeToken()).thenReturn(token);
+        // One drained batch, so the token is persisted, then a transient server error
+        when(failing.tryNext()).thenReturn(change).thenReturn(null).thenThrow(commandError(6));
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> quiet = cursor();
+        when(quiet.getResumeToken()).thenReturn(token);
+        when(changeStream.cursor()).thenReturn(failing, quiet);
+
+        sync.start();
+
+        verify(changeStream, timeout(WAIT_MILLIS)).resumeAfter(token);
+        verify(changeStream, timeout(WAIT_MILLIS).times(2)).cursor();
+        verify(activityScorer, after(200).never()).rebuildIndex(any());
+        assertThat(BsonDocument.parse(Files.readString(tokenPath))).isEqualTo(token);
+    }
+
+    @Test
+    void standaloneServerFallsBackToPollingUpdatedAt() {
+        when(changeStream.cursor()).thenThrow(commandError(40573));
+        Activity edited = Activity.builder().id(new ObjectId().toHexString()).updatedAt(new Date()).build();
+        when(activityRepository.findByUpdatedAtAfter(any())).thenReturn(List.of(edited));
+
+        sync.start();
+
+        verify(activityScorer, timeout(WAIT_MILLIS)).updateIndex(List.of(edited), List.of());
+        // Later polls see the same updatedAt again and skip it; the stream is never retried
+        verify(activityScorer, after(200).times(1)).updateIndex(any(), any());
+        verify(catalogReplica).update(List.of(edited), List.of());
+        verify(changeStream, times(1)).cursor();
+    }
+
+    @Test
+    void explicitChangeStreamModeKeepsRetryingInsteadOfPolling() {
+        ReflectionTestUtils.setField(sync, "mode", "change-stream");
+        when(changeStream.cursor()).thenThrow(commandError(40573));
+
+        sync.start();
+
+        verify(changeStream, timeout(WAIT_MILLIS).atLeast(3)).cursor();
+        verify(activityRepository, never()).findByUpdatedAtAfter(any());
+    }
+
+    @SafeVarargs
+    private static MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor(ChangeStreamDocument<Document>... events) {
+        return cursor(List.of(events));
+    }
+
+    // Hands out the events in order, then behaves like an idle stream: tryNext waits briefly (the
+    // real cursor waits up to maxAwaitTime) and returns null
+    private static MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor(List<ChangeStreamDocument<Document>> events) {
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = mockCursor();
+        Deque<ChangeStreamDocument<Document>> pending = new ArrayDeque<>(events);
+        when(cursor.tryNext()).thenAnswer(invocation -> {
+            if (!pending.isEmpty()) {
+                return pending.poll();
+            }
+            Thread.sleep(5);
+            return null;
+        });
+        return cursor;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoChangeStreamCursor<ChangeStreamDocument<Document>> mockCursor() {
+        return mock(MongoChangeStreamCursor.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Collection<Activity>> changedCaptor() {
+        return ArgumentCaptor.forClass(Collection.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamDocument<Document> event(OperationType operationType) {
+        ChangeStreamDocument<Document> change = mock(ChangeStreamDocument.class);
+        when(change.getOperationType()).thenReturn(operationType);
+        return change;
+    }
+
+    private static ChangeStreamDocument<Document> upsert(String id, String title) {
+        ChangeStreamDocument<Document> change = event(OperationType.UPDATE);
+        when(change.getFullDocument()).thenReturn(new Document("_id", new ObjectId(id))
+                .append("title", title)
+                .append("isActive", true)
+                .append("isPublic", true));
+        return change;
+    }
+
+    private static ChangeStreamDocument<Document> delete(String id) {
+        ChangeStreamDocument<Document> change = event(OperationType.DELETE);
+        when(change.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonObjectId(new ObjectId(id))));
+        return change;
+    }
+
+    private static BsonDocument token(String value) {
+        return new BsonDocument("_data", new BsonString(value));
+    }
+
+    private static MongoCommandException commandError(int code) {
+        return new MongoCommandException(new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(code))
+                .append("errmsg", new BsonString("error " + code)), new ServerAddress());
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.filter.ActivityFilterDto;
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.model.ActivitySummary;
+import com.example.learnverse.activity.model.FilterPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The replica must answer /filter exactly like the Mongo aggregation it stands in for: the same
+// filter DTOs go through both, after a full load and after rounds of incremental updates.
+class CatalogReplicaParityTests extends MongoIntegrationTests {
+
+    private static final int CATALOG_SIZE = 400;
+
+    // Sort paths the replica has columns for, with how to read each back from a summary
+    private static final Map<String, Function<ActivitySummary, Object>> SORT_VALUES = Map.of(
+            "createdAt", ActivitySummary::getCreatedAt,
+            "pricing.price", summary -> summary.getPricing() != null ? summary.getPricing().getPrice() : null,
+            "reviews.averageRating", summary -> summary.getReviews() != null ? summary.getReviews().getAverageRating() : null,
+            "enrollmentInfo.enrolledCount", summary -> summary.getEnrollmentInfo() != null ? summary.getEnrollmentInfo().getEnrolledCount() : null,
+            "duration.totalDuration", summary -> summary.getDuration() != null ? summary.getDuration().getTotalDuration() : null);
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private CatalogReplica catalogReplica;
+
+    @BeforeEach
+    void loadCatalog() {
+        seedCatalog(CATALOG_SIZE);
+        catalogReplica.load();
+    }
+
+    @Test
+    void matchesMongoAfterLoad() {
+        assertSameResultsForAllFilters();
+    }
+
+    @Test
+    void matchesMongoAfterIncrementalUpdates() {
+        List<Activity> stored = mongoTemplate.findAll(Activity.class);
+
+        // Enough rounds for the recent runs to be folded into the column bases along the way
+        for (int round = 0; round < 6; round++) {
+            List<Activity> changed = new ArrayList<>();
+            List<String> removedIds = new ArrayList<>();
+
+            for (int i = 0; i < 60; i++) {
+                Activity replacement = randomActivity(stored.get(random.nextInt(stored.size())).getId());
+                mongoTemplate.save(replacement);
+                changed.add(replacement);
+            }
+            for (int i = 0; i < 10; i++) {
+                Activity added = randomActivity(null);
+                mongoTemplate.insert(added);
+                stored.add(added);
+                changed.add(added);
+            }
+            for (int i = 0; i < 8; i++) {
+                String removedId = stored.remove(random.nextInt(stored.size())).getId();
+                mongoTemplate.remove(Query.query(Criteria.where("_id").is(removedId)), Activity.class);
+                changed.removeIf(activity -> activity.getId().equals(removedId));
+                removedIds.add(removedId);
+            }
+
+            catalogReplica.update(changed, removedIds);
+            assertSameResultsForAllFilters();
+        }
+    }
+
+    @Test
+    void pagesMatchOnUniqueSortKey() {
+        ActivityFilterDto filter = ActivityFilterDto.builder().modes(List.of("online", "hybrid")).build();
+        for (int page = 0; page < 4; page++) {
+            Pageable pageable = PageRequest.of(page, 7, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+            FilterPage<ActivitySummary> fromReplica = catalogReplica.filter(filter, pageable);
+            FilterPage<ActivitySummary> fromMongo = activityService.filterInMongo(filter, pageable);
+
+            assertThat(fromReplica).isNotNull();
+            assertThat(ids(fromReplica)).containsExactlyElementsOf(ids(fromMongo));
+            assertThat(fromReplica.getTotalElements()).isEqualTo(fromMongo.getTotalElements());
+        }
+    }
+
+    private void assertSameResultsForAllFilters() {
+        for (ActivityFilterDto filter : filters()) {
+            for (Sort.Order order : sortOrders()) {
+                assertSameResults(filter, order);
+            }
+        }
+    }
+
+    // Ties may come back in either order, so the whole result is compared as ids plus the sequence of sort values
+    private void assertSameResults(ActivityFilterDto filter, Sort.Order order) {
+        Pageable everything = PageRequest.of(0, CATALOG_SIZE * 2, Sort.by(order));
+
+        FilterPage<ActivitySummary> fromReplica = catalogReplica.filter(filter, everything);
+        FilterPage<ActivitySummary> fromMongo = activityService.filterInMongo(filter, everything);
+
+        String description = filter + " sorted by " + order;
+        assertThat(fromReplica).as(description).isNotNull();
+        assertThat(fromReplica.getTotalElements()).as(description).isEqualTo(fromMongo.getTotalElements());
+        assertThat(ids(fromReplica)).as(description).containsExactlyInAnyOrderElementsOf(ids(fromMongo));
+
+        Function<ActivitySummary, Object> sortValue = SORT_VALUES.get(order.getProperty());
+        assertThat(fromReplica.getContent().stream().map(sortValue).toList()).as(description)
+                .containsExactlyElementsOf(fromMongo.getContent().stream().map(sortValue).toList());
+    }
+
+    private static List<ActivityFilterDto> filters() {
+        return List.of(
+                new ActivityFilterDto(),
+                ActivityFilterDto.builder().subjects(List.of("Math", "music")).build(),
+                ActivityFilterDto.builder().modes(List.of("online")).cities(List.of("pune")).build(),
+                ActivityFilterDto.builder().states(List.of("delhi")).activityTypes(List.of("workshop")).build(),
+                ActivityFilterDto.builder().difficulties(List.of("beginner", "advanced")).build(),
+                ActivityFilterDto.builder().minPrice(500).maxPrice(2500).build(),
+                ActivityFilterDto.builder().maxPrice(1000).priceTypes(List.of("monthly")).build(),
+                ActivityFilterDto.builder().minRating(3.5).build(),
+                ActivityFilterDto.builder().minAge(10).build(),
+                ActivityFilterDto.builder().maxAge(12).build(),
+                ActivityFilterDto.builder().minAge(8).maxAge(14).build(),
+                ActivityFilterDto.builder().minDuration(60).maxDuration(600).build(),
+                ActivityFilterDto.builder().demoAvailable(true).featured(false).build(),
+                ActivityFilterDto.builder().freeTrialAvailable(true).build(),
+                ActivityFilterDto.builder().installmentAvailable(true).selfPaced(false).build(),
+                ActivityFilterDto.builder().flexibleScheduling(true).sessionDays(List.of("monday")).build(),
+                ActivityFilterDto.builder().subjects(List.of("coding")).modes(List.of("online", "hybrid"))
+                        .minRating(2.0).maxPrice(4000).demoAvailable(true).build());
+    }
+
+    private static List<Sort.Order> sortOrders() {
+        return List.of(
+                Sort.Order.desc("createdAt"),
+                Sort.Order.asc("pricing.price"),
+                Sort.Order.desc("pricing.price"),
+                Sort.Order.desc("reviews.averageRating"),
+                Sort.Order.asc("enrollmentInfo.enrolledCount"),
+                Sort.Order.desc("duration.totalDuration"));
+    }
+
+    private static List<String> ids(FilterPage<ActivitySummary> page) {
+        return page.getContent().stream().map(ActivitySummary::getId).toList();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.model.Activity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+// Application context against a real Mongo. The container is started once per test JVM and every
+// subclass shares the same configuration, so the Spring context is cached across classes too.
+@SpringBootTest(properties = {
+        "jwt.secret=learnverse-integration-tests-signing-key-0123456789",
+        "search.replica.enabled=true",
+        "search.sync.mode=off",
+        "search.index.segment-path="
+})
+abstract class MongoIntegrationTests {
+
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    static {
+        MONGO.start();
+    }
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", MONGO::getReplicaSetUrl);
+    }
+
+    static final List<String> SUBJECTS = List.of("math", "music", "coding", "art");
+    static final List<String> MODES = List.of("online", "offline", "hybrid");
+    static final List<String> DIFFICULTIES = List.of("beginner", "intermediate", "advanced");
+    static final List<String> CITIES = List.of("pune", "mumbai", "delhi");
+    static final List<String> STATES = List.of("maharashtra", "delhi");
+    static final List<String> PRICE_TYPES = List.of("per_session", "per_course", "monthly");
+    static final List<String> DAYS = List.of("monday", "wednesday", "saturday");
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    final Random random = new Random(42);
+    private final long baseTime = System.currentTimeMillis() - 365L * 24 * 60 * 60 * 1000;
+    private int created;
+
+    // Replaces the collection's contents with `size` random activities
+    List<Activity> seedCatalog(int size) {
+        mongoTemplate.remove(new Query(), Activity.class);
+
+        List<Activity> activities = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            activities.add(randomActivity(null));
+        }
+        return new ArrayList<>(mongoTemplate.insertAll(activities));
+    }
+
+    // Stored values are already normalized, as ActivityService writes them. Small value ranges give
+    // plenty of ties, and some numeric fields are left out so missing values are sorted too.
+    Activity randomActivity(String id) {
+        return Activity.builder()
+                .id(id)
+                .tutorId("tutor-" + random.nextInt(20))
+                .title("Activity " + created)
+                .subject(pick(SUBJECTS))
+                .activityType(random.nextBoolean() ? "workshop" : "course")
+                .mode(pick(MODES))
+                .difficulty(pick(DIFFICULTIES))
+                .location(Activity.Location.builder()
+                        .city(pick(CITIES))
+                        .state(pick(STATES))
+                        .build())
+                .suitableAgeGroup(Activity.SuitableAgeGroup.builder()
+                        .minAge(5 + random.nextInt(8))
+                        .maxAge(12 + random.nextInt(8))
+                        .build())
+                .pricing(random.nextInt(10) == 0 ? null : Activity.Pricing.builder()
+                        .price(random.nextInt(10) * 500)
+                        .priceType(pick(PRICE_TYPES))
+                        .installmentAvailable(random.nextBoolean())
+                        .freeTrialDays(random.nextInt(4) == 0 ? 7 : 0)
+                        .build())
+                .reviews(random.nextInt(5) == 0 ? null : Activity.Reviews.builder()
+                        .averageRating(random.nextInt(9) * 0.5 + 1.0)
+                        .totalReviews(random.nextInt(100))
+                        .build())
+                .duration(random.nextInt(8) == 0 ? null : Activity.DurationInfo.builder()
+                        .totalDuration(30 * (1 + random.nextInt(30)))
+                        .build())
+                .enrollmentInfo(random.nextInt(8) == 0 ? null : Activity.EnrollmentInfo.builder()
+                        .enrolledCount(random.nextInt(50))
+                        .build())
+                .schedule(Activity.Schedule.builder()
+                        .sessionDays(List.of(pick(DAYS)))
+                        .flexibleScheduling(random.nextBoolean())
+                        .selfPaced(random.nextBoolean())
+                        .build())
+                .demoAvailable(random.nextBoolean())
+                .featured(random.nextInt(5) == 0)
+                .isActive(random.nextInt(10) != 0)
+                .isPublic(random.nextInt(10) != 0)
+                // Distinct, so createdAt pages have a single correct order
+                .createdAt(new Date(baseTime + 1000L * created++))
+                .build();
+    }
+
+    <T> T pick(List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.model.ActivitySummary;
+import com.example.learnverse.auth.dto.UserInterestDto;
+import com.example.learnverse.auth.modelenum.Role;
+import com.example.learnverse.auth.service.UserService;
+import com.example.learnverse.auth.user.AppUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Feeds are served from the personal-feeds cache and only recomputed in the background once the
+// catalog moves, so a page can be built from ids that were live at materialization but not anymore
+class PersonalizedFeedServiceTests extends MongoIntegrationTests {
+
+    private static final List<String> INTERESTS = List.of("art", "coding", "music");
+
+    @Autowired
+    private PersonalizedFeedService feedService;
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        seedCatalog(200);
+
+        // Fresh user per test: feeds and profiles stay cached in the shared context
+        userId = "feed-user-" + UUID.randomUUID();
+        mongoTemplate.save(AppUser.builder().id(userId).name("Feed User").role(Role.USER).interests(INTERESTS).build());
+    }
+
+    @Test
+    void staleFeedIsServedOnceWhileTheRefreshReplacesIt() throws InterruptedException {
+        List<String> materialized = feedService.getFeed(userId);
+        assertThat(materialized).containsExactlyInAnyOrderElementsOf(matchingIds(INTERESTS));
+
+        Activity added = randomActivity(null);
+        added.setSubject("music");
+        added.setIsActive(true);
+        added.setIsPublic(true);
+        added.setCreatedAt(new Date());
+        added = mongoTemplate.insert(added);
+        catalogVersion.bump();
+
+        // The request that notices the new version gets the feed as it was, and queues the refresh
+        assertThat(feedService.getFeed(userId)).isEqualTo(materialized);
+
+        String addedId = added.getId();
+        List<String> refreshed = awaitFeed(feed -> feed.contains(addedId));
+        List<String> expected = new ArrayList<>(materialized);
+        expected.add(addedId);
+        assertThat(refreshed).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(feedService.getFeed(userId)).isEqualTo(refreshed);
+    }
+
+    @Test
+    void changedInterestsAreNeverServedTheOldFeed() {
+        assertThat(feedService.getFeed(userId)).containsExactlyInAnyOrderElementsOf(matchingIds(INTERESTS));
+
+        List<String> changed = List.of("coding", "math", "music");
+        UserInterestDto interests = new UserInterestDto();
+        interests.setInterests(changed);
+        userService.updateUserInterests(userId, interests);
+
+        // Whether or not the refresh queued by the interests event has landed, the feed matches the new interests
+        assertThat(feedService.getFeed(userId)).containsExactlyInAnyOrderElementsOf(matchingIds(changed));
+    }
+
+    @Test
+    void idsDeactivatedAfterMaterializationAreDroppedFromThePage() {
+        List<String> materialized = feedService.getFeed(userId);
+        assertThat(materialized).hasSizeGreaterThan(10);
+
+        String deactivated = materialized.get(1);
+        String madePrivate = materialized.get(3);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(deactivated)),
+                Update.update("isActive", false), Activity.class);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(madePrivate)),
+                Update.update("isPublic", false), Activity.class);
+        catalogVersion.bump();
+
+        // This request is served from the stale feed, which still lists both ids
+        Page<ActivitySummary> page = activityService.getActivitiesForUser(userId, 0, 5);
+
+        List<String> live = materialized.stream()
+                .filter(id -> !id.equals(deactivated) && !id.equals(madePrivate))
+                .toList();
+        assertThat(page.getContent()).extracting(ActivitySummary::getId).containsExactlyElementsOf(live.subList(0, 5));
+        assertThat(page.getTotalElements()).isEqualTo(live.size());
+
+        int pastTheEnd = live.size() / 5 + 1;
+        assertThat(activityService.getActivitiesForUser(userId, pastTheEnd, 5).getContent()).isEmpty();
+    }
+
+    // Everything the user's interests match, since the seeded catalog is smaller than feed.max-size
+    private List<String> matchingIds(List<String> interests) {
+        Query query = new Query(Criteria.where("subject").in(interests)
+                .and("isActive").is(true).and("isPublic").is(true));
+        return mongoTemplate.find(query, Activity.class).stream().map(Activity::getId).toList();
+    }
+
+    private List<String> awaitFeed(Predicate<List<String>> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        List<String> feed = feedService.getFeed(userId);
+        while (!condition.test(feed)) {
+            assertThat(System.currentTimeMillis()).as("feed refresh landed in time").isLessThan(deadline);
+            Thread.sleep(20);
+            feed = feedService.getFeed(userId);
+        }
+        return feed;
+    }
+}
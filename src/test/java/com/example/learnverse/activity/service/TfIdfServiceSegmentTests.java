@@ -0,0 +1,128 @@
+package com.example.learnverse.activity.service;
+
+import com.example.learnverse.activity.model.Activity;
+import com.example.learnverse.activity.nlp.TextAnalyzer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TfIdfServiceSegmentTests {
+
+    private static final List<String> QUERIES = List.of(
+            "python programming", "guitar lessons for beginners", "watercolor painting", "chess", "unknownterm");
+
+    @TempDir
+    Path directory;
+
+    private TfIdfService written;
+    private List<Activity> catalog;
+
+    @BeforeEach
+    void buildIndex() {
+        catalog = List.of(
+                activity("a1", "Python Programming for Kids", "coding", "Learn python step by step", List.of("python", "coding")),
+                activity("a2", "Advanced Python", "coding", "Decorators, generators and async python", List.of("python")),
+                activity("a3", "Guitar Basics", "music", "Chords and strumming for beginners", List.of("guitar")),
+                activity("a4", "Watercolor Painting", "art", "Painting landscapes with watercolor", List.of("painting", "art")),
+                activity("a5", "Chess Club", "games", "Openings, tactics and endgames", List.of("chess", "strategy")),
+                activity("a6", "Café Crème Pâtisserie", "cooking", "French pastry for beginners", List.of("baking")));
+
+        written = newService();
+        written.rebuildIndex(catalog);
+    }
+
+    @Test
+    void loadedSegmentScoresLikeTheIndexItWasWrittenFrom() throws IOException {
+        Path segment = directory.resolve("index.seg");
+        Instant checkpoint = Instant.ofEpochMilli(1_700_000_000_123L);
+        assertThat(written.writeSegment(segment, checkpoint)).isTrue();
+
+        TfIdfService loaded = newService();
+        assertThat(loaded.loadSegment(segment)).isEqualTo(checkpoint);
+        assertThat(loaded.getIndexedDocumentCount()).isEqualTo(written.getIndexedDocumentCount());
+
+        assertSameScores(written, loaded);
+    }
+
+    @Test
+    void loadedSegmentKeepsIndexingIncrementally() throws IOException {
+        Path segment = directory.resolve("index.seg");
+        written.writeSegment(segment, Instant.now());
+
+        TfIdfService loaded = newService();
+        loaded.loadSegment(segment);
+
+        // New terms must get ids past the restored dictionary, exactly as they would in the original
+        Activity added = activity("a7", "Python Chess Engines", "coding", "Write a chess engine in python", List.of("chess"));
+        for (TfIdfService service : List.of(written, loaded)) {
+            service.indexActivity(added);
+            service.removeActivity("a3");
+        }
+
+        assertThat(loaded.getIndexedDocumentCount()).isEqualTo(written.getIndexedDocumentCount());
+        assertSameScores(written, loaded);
+    }
+
+    @Test
+    void segmentWithBadChecksumIsIgnored() throws IOException {
+        Path segment = directory.resolve("index.seg");
+        written.writeSegment(segment, Instant.now());
+
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(segment, bytes);
+
+        TfIdfService loaded = newService();
+        assertThat(loaded.loadSegment(segment)).isNull();
+        assertThat(loaded.getIndexedDocumentCount()).isZero();
+    }
+
+    @Test
+    void missingOrTruncatedSegmentIsIgnored() throws IOException {
+        TfIdfService loaded = newService();
+        assertThat(loaded.loadSegment(directory.resolve("missing.seg"))).isNull();
+
+        Path truncated = directory.resolve("truncated.seg");
+        Files.write(truncated, new byte[]{1, 2, 3});
+        assertThat(loaded.loadSegment(truncated)).isNull();
+        assertThat(loaded.getIndexedDocumentCount()).isZero();
+    }
+
+    private void assertSameScores(TfIdfService expected, TfIdfService actual) {
+        for (String queryText : QUERIES) {
+            ActivityScorer.ScoringQuery expectedQuery = expected.prepareQuery(queryText);
+            ActivityScorer.ScoringQuery actualQuery = actual.prepareQuery(queryText);
+            for (Activity activity : catalog) {
+                assertThat(actualQuery.score(activity))
+                        .as("%s scored for \"%s\"", activity.getId(), queryText)
+                        .isEqualTo(expectedQuery.score(activity));
+            }
+        }
+    }
+
+    private static TfIdfService newService() {
+        return new TfIdfService(new TextAnalyzer(), new ConcurrentMapCacheManager());
+    }
+
+    private static Activity activity(String id, String title, String subject, String description, List<String> tags) {
+        return Activity.builder()
+                .id(id)
+                .title(title)
+                .subject(subject)
+                .description(description)
+                .tags(tags)
+                .activityType("course")
+                .isActive(true)
+                .isPublic(true)
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.learnverse.activity.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopKCollectorTests {
+
+    @Test
+    void keepsTheBestScoresInStableSortOrder() {
+        Random random = new Random(7);
+        for (int run = 0; run < 200; run++) {
+            int candidates = random.nextInt(300);
+            int capacity = 1 + random.nextInt(40);
+            // Few distinct values, so most of the work is breaking ties
+            float[] scores = new float[candidates];
+            for (int i = 0; i < candidates; i++) {
+                scores[i] = random.nextInt(10) / 10.0f;
+            }
+
+            TopKCollector collector = new TopKCollector(capacity);
+            for (int i = 0; i < candidates; i++) {
+                collector.collect(i, scores[i]);
+            }
+
+            assertThat(collector.topPositions()).containsExactly(expectedTop(scores, capacity));
+        }
+    }
+
+    @Test
+    void holdsFewerCandidatesThanCapacity() {
+        TopKCollector collector = new TopKCollector(10);
+        collector.collect(0, 0.2f);
+        collector.collect(1, 0.9f);
+        collector.collect(2, 0.5f);
+
+        assertThat(collector.size()).isEqualTo(3);
+        assertThat(collector.isFull()).isFalse();
+        assertThat(collector.topPositions()).containsExactly(1, 2, 0);
+        assertThat(collector.maxScore()).isEqualTo(0.9f);
+    }
+
+    @Test
+    void mergedChunksMatchASingleCollector() {
+        Random random = new Random(11);
+        float[] scores = new float[1000];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextInt(50) / 50.0f;
+        }
+
+        TopKCollector single = new TopKCollector(25);
+        for (int i = 0; i < scores.length; i++) {
+            single.collect(i, scores[i]);
+        }
+
+        // Chunks merged in reverse, so ties are not simply resolved by arrival order
+        TopKCollector merged = new TopKCollector(25);
+        for (int start = (scores.length - 1) / 128 * 128; start >= 0; start -= 128) {
+            TopKCollector chunk = new TopKCollector(25);
+            for (int i = start; i < Math.min(start + 128, scores.length); i++) {
+                chunk.collect(i, scores[i]);
+            }
+            merged.merge(chunk);
+        }
+
+        assertThat(merged.topPositions()).containsExactly(single.topPositions());
+    }
+
+    @Test
+    void saturatesOnceFullAndEverySlotReachesTheThreshold() {
+        TopKCollector collector = new TopKCollector(2);
+        collector.collect(0, 0.8f);
+        assertThat(collector.isSaturatedAt(0.5f)).isFalse();
+
+        collector.collect(1, 0.4f);
+        assertThat(collector.isSaturatedAt(0.5f)).isFalse();
+
+        collector.collect(2, 0.6f);
+        assertThat(collector.isSaturatedAt(0.5f)).isTrue();
+        assertThat(collector.isSaturatedAt(0.7f)).isFalse();
+    }
+
+    @Test
+    void capacityIsAtLeastOne() {
+        TopKCollector collector = new TopKCollector(0);
+        collector.collect(0, 0.1f);
+        collector.collect(1, 0.3f);
+
+        assertThat(collector.topPositions()).containsExactly(1);
+    }
+
+    private static int[] expectedTop(float[] scores, int capacity) {
+        return IntStream.range(0, scores.length)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> -scores[i]).thenComparingInt(i -> i))
+                .limit(capacity)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}